@@ -24,18 +24,24 @@
 
 package com.jcwhatever.resourcepackermc;
 
+import com.jcwhatever.resourcepackermc.Utils.ITextWriteHandler;
+import com.jcwhatever.resourcepackermc.generators.LoadCostGenerator;
 import com.jcwhatever.resourcepackermc.generators.NucleusGenerator;
 import com.jcwhatever.resourcepackermc.generators.PackGenerator;
 import com.jcwhatever.resourcepackermc.generators.SoundsExtraTxtGenerator;
 import com.jcwhatever.resourcepackermc.generators.SoundsJSONGenerator;
 import com.jcwhatever.resourcepackermc.generators.SoundsTxtGenerator;
-import com.jcwhatever.resourcepackermc.sounds.MinecraftSounds;
-import com.jcwhatever.resourcepackermc.sounds.OggSound;
+import com.jcwhatever.resourcepackermc.log.Log;
+import com.jcwhatever.resourcepackermc.log.Log.Level;
+import com.jcwhatever.resourcepackermc.sounds.SoundTagger;
+import com.jcwhatever.resourcepackermc.sounds.ogg.OggSlimmer;
+import com.jcwhatever.resourcepackermc.zip.CompressionPolicy;
 
 import org.apache.commons.cli.BasicParser;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
 import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 
@@ -46,7 +52,11 @@ import javafx.scene.Scene;
 import javafx.stage.Stage;
 
 import java.io.File;
-import java.util.Collection;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * Main console class.
@@ -56,13 +66,54 @@ public class Main extends Application {
     static Options _options = new Options();
 
     static {
-        _options.addOption("folder", true, "The folder to pack.");
+        Option folderOption = new Option("folder", true, "The folder to pack. Specify more than one " +
+                "folder to overlay them, files in later folders replace files at the same path in earlier folders.");
+        folderOption.setArgs(Option.UNLIMITED_VALUES);
+        _options.addOption(folderOption);
         _options.addOption("zip", true, "Specify the filename of the resource pack zip file to create. " +
                 "Omit to prevent zip file creation.");
         _options.addOption("sounds", false, "Create a sounds.json file or modify existing.");
+        _options.addOption("streambudget", true, "The largest decoded size in KiB of a sound that " +
+                "is loaded into memory instead of streamed when generating sounds.json. Default is " +
+                (SoundsJSONGenerator.DEFAULT_STREAM_BUDGET / 1024) + ".");
         _options.addOption("nucleus", false, "Create a NucleusFramework resource-sounds.yml file.");
         _options.addOption("soundtxt", false, "Create SOUNDS.TXT and SOUNDS_EXTRA.TXT file containing " +
                 "information about sounds.");
+        _options.addOption("manifest", false, "Keep a manifest of file hashes in the resource pack folder " +
+                "so unchanged files are not re-read and an unchanged zip file is not regenerated.");
+        _options.addOption("dedupe", false, "Store files with identical contents once in the zip file " +
+                "and print a report of the duplicates found.");
+        _options.addOption("incremental", false, "Copy the compressed data of unchanged files from " +
+                "the previous zip file instead of compressing them again.");
+        _options.addOption("reproducible", false, "Sort zip entries by name and give them a fixed modified " +
+                "time so the same files always produce the same zip file. The time is read from the " +
+                "SOURCE_DATE_EPOCH environment variable if set.");
+        Option hashOption = new Option("hash", true, "Print the size and SHA-1 of the zip file as " +
+                "key=value lines. Other output is written to standard error. Optionally specify a file " +
+                "to write them to instead.");
+        hashOption.setOptionalArg(true);
+        _options.addOption(hashOption);
+        _options.addOption("sha256", false, "Include the SHA-256 of the zip file with -hash.");
+        Option slimOption = new Option("slim", true, "Remove embedded pictures, encoder notes and " +
+                "padding from sound files added to the zip file. Optionally specify a comma separated " +
+                "list of the comment keys to remove instead.");
+        slimOption.setOptionalArg(true);
+        _options.addOption(slimOption);
+        _options.addOption("tag", true, "Set sound file comments from a CSV file before generating. " +
+                "The first column is the sound file path and the other columns are comment names.");
+        _options.addOption("verify", false, "Check the pages of every sound file and stop " +
+                "without generating anything if any are corrupt.");
+        Option reportOption = new Option("report", true, "Report the memory used by a client to load " +
+                "textures and sounds. Optionally specify a file to write the report to, the report is " +
+                "written as JSON if the file name ends with .json.");
+        reportOption.setOptionalArg(true);
+        _options.addOption(reportOption);
+        _options.addOption("top", true, "The number of the largest folders and files listed in the report. " +
+                "Default is " + LoadCostGenerator.DEFAULT_TOP_COUNT + ".");
+        _options.addOption("threads", true, "The number of threads to use. " +
+                "Defaults to the number of available processors.");
+        _options.addOption("quiet", false, "Only show errors and warnings.");
+        _options.addOption("verbose", false, "Show each file found and the stack traces of errors.");
         _options.addOption("help", false, "Get option help.");
     }
 
@@ -78,52 +129,130 @@ public class Main extends Application {
         try {
             cmd = parser.parse(_options, args);
         } catch (ParseException e) {
-            System.err.println(e.getLocalizedMessage());
+            Log.error(e.getLocalizedMessage());
+            Log.flush();
             showHelp();
             System.exit(-1);
             return;
         }
 
+        if (cmd.hasOption("verbose")) {
+            Log.setLevel(Level.VERBOSE);
+        }
+        else if (cmd.hasOption("quiet")) {
+            Log.setLevel(Level.QUIET);
+        }
+
+        // keep standard output for the hash info alone
+        if (cmd.hasOption("hash") && cmd.getOptionValue("hash") == null) {
+            Log.setOutput(System.err);
+        }
+
         // show help if requested
         if (cmd.hasOption("help")) {
             showHelp();
             return;
         }
 
-        File folder;
+        List<File> folders = new ArrayList<>(3);
 
         if (cmd.hasOption("folder")) {
-            // use specified folder
-            String foldername = cmd.getOptionValue("folder");
-            folder = new File(foldername);
+            // use specified folders
+            for (String foldername : cmd.getOptionValues("folder")) {
+                folders.add(new File(foldername));
+            }
         } else {
             // use folder jar file is in.
-            folder = Utils.getJarFolder();
+            folders.add(Utils.getJarFolder());
         }
 
-        // make sure folder exists
-        if (!folder.exists()) {
-            System.err.println("Folder not found: " + folder);
-            System.exit(-1);
-            return;
+        // make sure folders exist
+        for (File folder : folders) {
+            if (!folder.isDirectory()) {
+                Log.error("Folder not found: " + folder);
+                Log.flush();
+                System.exit(-1);
+                return;
+            }
+        }
+
+        File folder = folders.get(0);
+
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        if (cmd.hasOption("threads")) {
+            try {
+                threads = Integer.parseInt(cmd.getOptionValue("threads"));
+            } catch (NumberFormatException e) {
+                Log.error("Invalid thread count: " + cmd.getOptionValue("threads"));
+                Log.flush();
+                System.exit(-1);
+                return;
+            }
+        }
+
+        // tag sound files before they are scanned
+        if (cmd.hasOption("tag")) {
+
+            File csv = new File(cmd.getOptionValue("tag"));
+
+            try {
+                SoundTagger.tag(SoundTagger.readCsv(csv, folders), threads);
+            } catch (IOException e) {
+                Log.error("Failed to read tag file: " + csv, e);
+                Log.flush();
+                System.exit(-1);
+                return;
+            }
+        }
+
+        ResourcePackFiles files = new ResourcePackFiles(folders, threads, cmd.hasOption("manifest"));
+
+        if (cmd.hasOption("verify")) {
+
+            int corrupt = files.verifySounds();
+            if (corrupt > 0) {
+                Log.error(corrupt + " corrupt sound file(s) found.");
+                Log.flush();
+                System.exit(-1);
+                return;
+            }
+        }
+
+        long streamBudget = SoundsJSONGenerator.DEFAULT_STREAM_BUDGET;
+
+        if (cmd.hasOption("streambudget")) {
+            try {
+                streamBudget = Long.parseLong(cmd.getOptionValue("streambudget")) * 1024;
+            } catch (NumberFormatException e) {
+                Log.error("Invalid stream budget: " + cmd.getOptionValue("streambudget"));
+                Log.flush();
+                System.exit(-1);
+                return;
+            }
         }
 
-        ResourcePackFiles files = new ResourcePackFiles(folder);
-        Collection<OggSound> sounds = files.getSounds();
-        Collection<OggSound> extraSounds = MinecraftSounds.removeMinecraft(sounds);
+        // read sound metadata in parallel before generators need it
+        if (cmd.hasOption("sounds") || cmd.hasOption("nucleus") ||
+                cmd.hasOption("soundtxt") || cmd.hasOption("report"))
+            files.prefetchMetadata();
 
         // generate/update sounds.json file
         if (cmd.hasOption("sounds")) {
 
             SoundsJSONGenerator generator = new SoundsJSONGenerator();
+            generator.setStreamBudget(streamBudget);
+
+            // modify the sounds.json file from the overlaid folders if there is one
+            File soundsJson = files.getSoundsJson() != null
+                    ? files.getSoundsJson()
+                    : SoundsJSONGenerator.getFile(folder);
 
-            generator.generate(files, SoundsJSONGenerator.getFile(folder));
+            generator.generate(files, soundsJson);
 
             // add newly generated sounds.json files to files collection
-            if (files.getSoundsJson() == null) {
-                File file = SoundsJSONGenerator.getFile(folder);
-                files.getFiles().add(file);
-            }
+            if (files.getSoundsJson() == null)
+                files.addFile(soundsJson);
         }
 
         // Generate resource-sounds.yml
@@ -139,26 +268,53 @@ public class Main extends Application {
             File tracksFile = new File(Utils.getJarFolder(), "SOUNDS.TXT");
 
             generator.generate(files, tracksFile);
-            System.out.println("Generated SOUNDS.TXT");
+            Log.info("Generated SOUNDS.TXT");
 
-            if (!files.getFiles().contains(tracksFile)) {
-                files.getFiles().add(tracksFile);
-                System.out.println("Packed SOUNDS.TXT");
-            }
+            if (files.addFile(tracksFile))
+                Log.info("Packed SOUNDS.TXT");
 
-            if (!extraSounds.isEmpty()) {
+            if (!files.getExtraSounds().isEmpty()) {
 
                 SoundsExtraTxtGenerator extraGen = new SoundsExtraTxtGenerator();
                 File extraTracksFile = new File(Utils.getJarFolder(), "SOUNDS_EXTRA.TXT");
 
                 extraGen.generate(files, extraTracksFile);
-                System.out.println("Generated SOUNDS_EXTRA.TXT");
+                Log.info("Generated SOUNDS_EXTRA.TXT");
+
+                if (files.addFile(extraTracksFile))
+                    Log.info("Packed SOUNDS_EXTRA.TXT");
+            }
+        }
 
-                if (!files.getFiles().contains(extraTracksFile)) {
-                    files.getFiles().add(extraTracksFile);
-                    System.out.println("Packed SOUNDS_EXTRA.TXT");
+        // Generate client load cost report
+        if (cmd.hasOption("report")) {
+
+            LoadCostGenerator generator = new LoadCostGenerator();
+            generator.setStreamBudget(streamBudget);
+
+            if (cmd.hasOption("top")) {
+                try {
+                    generator.setTopCount(Integer.parseInt(cmd.getOptionValue("top")));
+                } catch (NumberFormatException e) {
+                    Log.error("Invalid top count: " + cmd.getOptionValue("top"));
+                    Log.flush();
+                    System.exit(-1);
+                    return;
                 }
             }
+
+            String filename = cmd.getOptionValue("report");
+
+            if (filename != null) {
+                generator.setJson(filename.toLowerCase().endsWith(".json"));
+                generator.generate(files, new File(Utils.getJarFolder(), filename));
+                Log.info("Generated " + filename);
+            }
+            else {
+                StringBuilder sb = new StringBuilder(1024);
+                generator.generate(files, sb);
+                Log.info(sb.toString().trim());
+            }
         }
 
         // Generate Zip file
@@ -167,8 +323,62 @@ public class Main extends Application {
             File file = new File(Utils.getJarFolder(), filename);
 
             PackGenerator generator = new PackGenerator();
+            generator.setDeduplicate(cmd.hasOption("dedupe"));
+            generator.setIncremental(cmd.hasOption("incremental"));
+            generator.setCompressionPolicy(CompressionPolicy.load(folders));
+
+            if (cmd.hasOption("reproducible")) {
+                generator.setReproducible(true);
+
+                String epoch = System.getenv("SOURCE_DATE_EPOCH");
+                if (epoch != null) {
+                    try {
+                        generator.setFixedTime(Long.parseLong(epoch.trim()) * 1000);
+                    } catch (NumberFormatException e) {
+                        Log.error("Invalid SOURCE_DATE_EPOCH: " + epoch);
+                        Log.flush();
+                        System.exit(-1);
+                        return;
+                    }
+                }
+            }
+
+            if (cmd.hasOption("slim")) {
+                String comments = cmd.getOptionValue("slim");
+                generator.setSlimComments(comments != null
+                        ? Arrays.asList(comments.split(","))
+                        : OggSlimmer.DEFAULT_COMMENTS);
+            }
+
+            generator.setSha256(cmd.hasOption("sha256"));
             generator.generate(files, file);
+
+            final String hashInfo = generator.getHashInfo();
+
+            if (cmd.hasOption("hash") && hashInfo != null) {
+
+                String hashFilename = cmd.getOptionValue("hash");
+
+                if (hashFilename != null) {
+                    Utils.writeTextFile(new File(Utils.getJarFolder(), hashFilename), new ITextWriteHandler() {
+                        @Override
+                        public void write(OutputStreamWriter writer) throws IOException {
+                            writer.write(hashInfo);
+                        }
+                    });
+                    Log.info("Generated " + hashFilename);
+                }
+                else {
+                    Log.flush();
+                    System.out.print(hashInfo);
+                }
+            }
+            else if (hashInfo != null) {
+                Log.info("SHA-1: " + generator.getSha1());
+            }
         }
+
+        Log.flush();
     }
 
     /**
@@ -0,0 +1,131 @@
+/*
+ * This file is part of ResourcePackerMC for Bukkit, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) JCThePants (www.jcwhatever.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.jcwhatever.resourcepackermc;
+
+import com.jcwhatever.resourcepackermc.sounds.OggSound;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A set of changes made to {@link ResourcePackFiles} by a refresh or
+ * by changes detected while watching the resource pack folder.
+ */
+public class PackChanges {
+
+    private final List<File> _addedFiles = new ArrayList<>(10);
+    private final List<File> _removedFiles = new ArrayList<>(10);
+    private final List<File> _modifiedFiles = new ArrayList<>(10);
+
+    private final List<OggSound> _addedSounds = new ArrayList<>(5);
+    private final List<OggSound> _removedSounds = new ArrayList<>(5);
+    private final List<OggSound> _modifiedSounds = new ArrayList<>(5);
+
+    /**
+     * Determine if there are no changes.
+     */
+    public boolean isEmpty() {
+        return _addedFiles.isEmpty() && _removedFiles.isEmpty() && _modifiedFiles.isEmpty();
+    }
+
+    /**
+     * Get files that were added.
+     */
+    public Collection<File> getAddedFiles() {
+        return Collections.unmodifiableList(_addedFiles);
+    }
+
+    /**
+     * Get files that were removed.
+     */
+    public Collection<File> getRemovedFiles() {
+        return Collections.unmodifiableList(_removedFiles);
+    }
+
+    /**
+     * Get files whose size or last modified time changed.
+     */
+    public Collection<File> getModifiedFiles() {
+        return Collections.unmodifiableList(_modifiedFiles);
+    }
+
+    /**
+     * Get sounds that were added.
+     */
+    public Collection<OggSound> getAddedSounds() {
+        return Collections.unmodifiableList(_addedSounds);
+    }
+
+    /**
+     * Get sounds that were removed.
+     */
+    public Collection<OggSound> getRemovedSounds() {
+        return Collections.unmodifiableList(_removedSounds);
+    }
+
+    /**
+     * Get sounds whose file was modified.
+     *
+     * <p>The returned sounds are the new {@code OggSound} instances
+     * that replaced the previous ones.</p>
+     */
+    public Collection<OggSound> getModifiedSounds() {
+        return Collections.unmodifiableList(_modifiedSounds);
+    }
+
+    void addFile(File file) {
+        _addedFiles.add(file);
+    }
+
+    void removeFile(File file) {
+        _removedFiles.add(file);
+    }
+
+    void modifyFile(File file) {
+        _modifiedFiles.add(file);
+    }
+
+    void addSound(OggSound sound) {
+        _addedSounds.add(sound);
+    }
+
+    void removeSound(OggSound sound) {
+        _removedSounds.add(sound);
+    }
+
+    void modifySound(OggSound sound) {
+        _modifiedSounds.add(sound);
+    }
+
+    @Override
+    public String toString() {
+        return "PackChanges{added=" + _addedFiles.size() +
+                ", removed=" + _removedFiles.size() +
+                ", modified=" + _modifiedFiles.size() + '}';
+    }
+}
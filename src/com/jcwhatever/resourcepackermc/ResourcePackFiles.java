@@ -24,39 +24,136 @@
 
 package com.jcwhatever.resourcepackermc;
 
+import com.jcwhatever.resourcepackermc.log.Log;
+import com.jcwhatever.resourcepackermc.log.Progress;
+import com.jcwhatever.resourcepackermc.scanner.FileScanner;
+import com.jcwhatever.resourcepackermc.scanner.FolderWatcher;
+import com.jcwhatever.resourcepackermc.scanner.FolderWatcher.IWatchHandler;
+import com.jcwhatever.resourcepackermc.scanner.PackEntry;
+import com.jcwhatever.resourcepackermc.scanner.PackIgnore;
+import com.jcwhatever.resourcepackermc.scanner.PathIndex;
+import com.jcwhatever.resourcepackermc.scanner.ScanManifest;
+import com.jcwhatever.resourcepackermc.sounds.MinecraftSounds;
 import com.jcwhatever.resourcepackermc.sounds.OggSound;
+import com.jcwhatever.resourcepackermc.sounds.SoundCache;
+import com.jcwhatever.resourcepackermc.sounds.ogg.OggVerifier;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.AbstractCollection;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
-import java.util.regex.Pattern;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import javax.annotation.Nullable;
 
 /**
  * Scans a resource pack folder for resource pack files.
+ *
+ * <p>More than one root folder can be scanned. Root folders are overlaid in
+ * order, so a file in a later root folder shadows the file at the same
+ * relative path in an earlier root folder.</p>
  */
 public class ResourcePackFiles {
 
-    private static final Pattern PATTERN_DOT = Pattern.compile("\\.");
+    private static final long WATCH_DEBOUNCE = 300;
 
     private final File _folder;
+    private final List<File> _roots;
+    private final List<String> _rootPaths;
+    private final List<FileScanner> _scanners;
+    private final int _threads;
+    private final boolean _useManifest;
 
     private Set<String> _includeExt = new HashSet<>(10);
-    private Collection<OggSound> _sounds = new ArrayList<>(100);
-    private ArrayList<File> _filesToAdd = new ArrayList<>(100);
+    private PathIndex _index = new PathIndex();
+    private Map<File, OggSound> _sounds = new LinkedHashMap<>(100);
+    private List<OggSound> _minecraftSounds;
+    private List<OggSound> _extraSounds;
+    private ArrayList<File> _extraFiles = new ArrayList<>(10);
+    private Collection<File> _files = new FileCollection();
     private File _soundsjson;
+    private ScanManifest _manifest;
+    private SoundCache _soundCache;
+    private List<FolderWatcher> _watchers;
+    private List<IPackChangeListener> _listeners = new CopyOnWriteArrayList<>();
 
     private Set<File> _excluded = new HashSet<>(100);
 
     /**
      * Constructor.
      *
+     * <p>Uses one scan thread per available processor.</p>
+     *
      * @param resourceFolder  The resource pack root folder.
      */
     public ResourcePackFiles(File resourceFolder) {
-        _folder = resourceFolder;
+        this(resourceFolder, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param resourceFolder  The resource pack root folder.
+     * @param threads         The number of threads to use when scanning and processing files.
+     */
+    public ResourcePackFiles(File resourceFolder, int threads) {
+        this(resourceFolder, threads, false);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param resourceFolder  The resource pack root folder.
+     * @param threads         The number of threads to use when scanning and processing files.
+     * @param useManifest     True to keep a persistent manifest of file hashes in the
+     *                        resource pack folder.
+     */
+    public ResourcePackFiles(File resourceFolder, int threads, boolean useManifest) {
+        this(Collections.singletonList(resourceFolder), threads, useManifest);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param resourceFolders  The resource pack root folders in order of increasing priority.
+     *                         Files in later folders shadow files at the same relative path
+     *                         in earlier folders. The manifest is kept in the first folder.
+     * @param threads          The number of threads to use when scanning and processing files.
+     * @param useManifest      True to keep a persistent manifest of file hashes in the
+     *                         resource pack folder.
+     */
+    public ResourcePackFiles(List<File> resourceFolders, int threads, boolean useManifest) {
+
+        if (resourceFolders.isEmpty())
+            throw new IllegalArgumentException("At least one resource folder is required.");
+
+        _roots = new ArrayList<>(resourceFolders.size());
+        _rootPaths = new ArrayList<>(resourceFolders.size());
+        _scanners = new ArrayList<>(resourceFolders.size());
+
+        for (File folder : resourceFolders) {
+            File root = folder.getAbsoluteFile();
+            _roots.add(root);
+            _rootPaths.add(root.getPath());
+        }
+
+        _folder = _roots.get(0);
+        _threads = Math.max(1, threads);
+        _useManifest = useManifest;
 
         _includeExt.add("txt");
         _includeExt.add("ogg");
@@ -65,22 +162,452 @@ public class ResourcePackFiles {
         _includeExt.add("lang");
         _includeExt.add("json");
 
+        for (File root : _roots) {
+            _scanners.add(new FileScanner(root, _includeExt, PackIgnore.EMPTY, _threads));
+        }
+
         refresh();
     }
 
     /**
      * Refresh files.
+     *
+     * <p>Replaces the previously found files with the results of a new scan.
+     * All root folders are scanned at the same time. Sounds whose files are
+     * unchanged are kept.</p>
+     *
+     * @return  The changes since the previous scan.
      */
-    public void refresh() {
-        iterateFiles(_folder, "");
+    public PackChanges refresh() {
+
+        // ignore rules are reloaded on each refresh
+        for (FileScanner scanner : _scanners) {
+            scanner.setIgnore(PackIgnore.load(scanner.getRoot()));
+        }
+
+        Progress progress = new Progress("Scanning");
+        List<List<PackEntry>> results = scanRoots(progress);
+        progress.finish();
+
+        PathIndex index = new PathIndex();
+        int shadowed = 0;
+
+        // later roots shadow earlier roots
+        for (List<PackEntry> rootEntries : results) {
+            for (PackEntry entry : rootEntries) {
+                PackEntry replaced = index.put(entry);
+                if (replaced != null) {
+                    shadowed++;
+                    Log.verbose("Shadowed " + replaced.getFile() + " with " + entry.getFile());
+                }
+            }
+        }
+
+        if (shadowed != 0)
+            Log.info("Overlays: " + shadowed + " files shadowed");
+
+        List<PackEntry> entries = index.getEntries();
+
+        Map<File, OggSound> previousSounds = new HashMap<>(_sounds);
+
+        PackChanges changes = new PackChanges();
+        Map<File, OggSound> sounds = new LinkedHashMap<>(Math.max(100, entries.size() / 4));
+        File soundsJson = null;
+
+        for (PackEntry entry : entries) {
+
+            File file = entry.getFile();
+
+            if (file.getName().equals("sounds.json"))
+                soundsJson = file;
+
+            if (Log.isVerbose())
+                Log.verbose("Found " + File.separatorChar + entry.getPath().replace('/', File.separatorChar));
+
+            PackEntry previous = _index.get(entry.getPath());
+
+            // a file from a different root is reported as removed and added
+            if (previous != null && !previous.getFile().equals(file))
+                previous = null;
+
+            if (previous != null)
+                _index.remove(entry.getPath());
+
+            boolean isModified = previous != null && isModified(previous, entry);
+
+            if (previous == null) {
+                changes.addFile(file);
+            }
+            else if (isModified) {
+                changes.modifyFile(file);
+            }
+
+            if (entry.getExtension().equals("ogg")) {
+
+                OggSound sound = previousSounds.remove(file);
+
+                if (sound == null || isModified) {
+                    sound = new OggSound(file);
+
+                    if (previous == null) {
+                        changes.addSound(sound);
+                    }
+                    else {
+                        changes.modifySound(sound);
+                    }
+                }
+
+                sounds.put(file, sound);
+            }
+        }
+
+        // entries left over from the previous scan were removed
+        for (PackEntry entry : _index.getEntries()) {
+            changes.removeFile(entry.getFile());
+        }
+
+        for (OggSound sound : previousSounds.values()) {
+            changes.removeSound(sound);
+        }
+
+        _index = index;
+        _sounds = sounds;
+        _soundsjson = soundsJson;
+        clearSoundViews();
+
+        if (_useManifest) {
+
+            if (_manifest == null)
+                _manifest = ScanManifest.load(_folder);
+
+            int hashed = _manifest.update(entries, _threads);
+            _manifest.save();
+
+            Log.info("Manifest: " + hashed + " of " + entries.size() + " files new or modified");
+        }
+
+        if (!changes.isEmpty())
+            onChanged(changes);
+
+        return changes;
     }
 
     /**
-     * Get files found. Direct reference. Files can be added or removed
-     * from the returned {@code ArrayList}.
+     * Add a listener to be notified when files are changed.
+     *
+     * @param listener  The listener to add.
+     */
+    public void addListener(IPackChangeListener listener) {
+        _listeners.add(listener);
+    }
+
+    /**
+     * Remove a listener.
+     *
+     * @param listener  The listener to remove.
+     */
+    public void removeListener(IPackChangeListener listener) {
+        _listeners.remove(listener);
+    }
+
+    /**
+     * Start watching the resource pack folder for changes.
+     *
+     * <p>Changes are applied to the found files as they are detected. Changes that
+     * occur close together are applied together. Listeners are notified of each
+     * set of changes.</p>
+     *
+     * @param executor  The executor used to apply changes and notify listeners. Found
+     *                  files are only modified from the executor while watching.
+     *
+     * @return  True if watching was started, false if the folder could not be watched.
+     */
+    public boolean startWatching(final Executor executor) {
+
+        stopWatching();
+
+        _watchers = new ArrayList<>(_scanners.size());
+
+        for (int i = 0; i < _scanners.size(); i++) {
+
+            final int rootIndex = i;
+            FileScanner scanner = _scanners.get(i);
+
+            FolderWatcher watcher = new FolderWatcher(scanner, WATCH_DEBOUNCE, new IWatchHandler() {
+                @Override
+                public void onChanged(final List<PackEntry> updated, final List<String> removed) {
+                    executor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            applyChanges(rootIndex, updated, removed);
+                        }
+                    });
+                }
+
+                @Override
+                public void onRescanRequired() {
+                    executor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            refresh();
+                        }
+                    });
+                }
+            });
+
+            _watchers.add(watcher);
+
+            try {
+                watcher.start();
+            } catch (IOException e) {
+                Log.error("Failed to watch folder: " + scanner.getRoot(), e);
+                stopWatching();
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Stop watching the resource pack folder for changes.
+     */
+    public void stopWatching() {
+
+        if (_watchers == null)
+            return;
+
+        for (FolderWatcher watcher : _watchers) {
+            watcher.stop();
+        }
+
+        _watchers = null;
+    }
+
+    /**
+     * Determine if the resource pack folder is being watched for changes.
+     */
+    public boolean isWatching() {
+        return _watchers != null;
+    }
+
+    /**
+     * Get the number of threads used to scan and process files.
+     */
+    public int getThreadCount() {
+        return _threads;
+    }
+
+    /**
+     * Get the manifest of the resource pack folder.
+     *
+     * @return  The manifest or null if the manifest is not used.
+     */
+    @Nullable
+    public ScanManifest getManifest() {
+        return _manifest;
+    }
+
+    /**
+     * Get files found and files added using {@link #addFile}.
+     *
+     * <p>Not modifiable. The collection is a view of the current files.</p>
      */
     public Collection<File> getFiles() {
-        return _filesToAdd;
+        return _files;
+    }
+
+    /**
+     * Add a file to the resource pack files.
+     *
+     * <p>Used to pack files that are generated after the resource pack
+     * folder is scanned. Files inside a root folder are added to the path
+     * index, replacing any file at the same relative path. Files outside of
+     * the root folders are packed by file name and are kept when the folder
+     * is refreshed.</p>
+     *
+     * @param file  The file to add.
+     *
+     * @return  True if the file was added, false if it is already included.
+     */
+    public boolean addFile(File file) {
+
+        if (contains(file))
+            return false;
+
+        file = file.getAbsoluteFile();
+
+        int rootIndex = getRootIndex(file);
+        PackEntry entry = rootIndex != -1
+                ? _scanners.get(rootIndex).scanFile(file, getPath(file, rootIndex))
+                : null;
+
+        if (entry != null) {
+            _index.put(entry);
+
+            if (file.getName().equals("sounds.json"))
+                _soundsjson = file;
+        }
+        else {
+            _extraFiles.add(file);
+        }
+
+        return true;
+    }
+
+    /**
+     * Determine if a file is included in the resource pack files.
+     *
+     * <p>Does not access the file system.</p>
+     *
+     * @param file  The file to check.
+     */
+    public boolean contains(File file) {
+
+        file = file.getAbsoluteFile();
+
+        String path = getPath(file);
+        if (path != null) {
+            PackEntry entry = _index.get(path);
+            if (entry != null && entry.getFile().equals(file))
+                return true;
+        }
+
+        return _extraFiles.contains(file);
+    }
+
+    /**
+     * Find an included file by name.
+     *
+     * <p>Does not access the file system. If more than one file has the name,
+     * the file closest to the resource pack root folder is returned.</p>
+     *
+     * @param name  The case sensitive file name.
+     *
+     * @return  The file or null if not found.
+     */
+    @Nullable
+    public File findFile(String name) {
+
+        PackEntry result = null;
+
+        for (PackEntry entry : _index.findByName(name)) {
+            if (result == null || entry.getPath().length() < result.getPath().length())
+                result = entry;
+        }
+
+        if (result != null)
+            return result.getFile();
+
+        for (File file : _extraFiles) {
+            if (file.getName().equals(name))
+                return file;
+        }
+
+        return null;
+    }
+
+    /**
+     * Get the entry of a file found in the resource pack folder.
+     *
+     * @param path  The '/' separated path of the file relative to the root folder.
+     *
+     * @return  The entry or null if not found.
+     */
+    @Nullable
+    public PackEntry getEntry(String path) {
+        return _index.get(path);
+    }
+
+    /**
+     * Get the entries of all files found in the resource pack folder.
+     *
+     * <p>Does not access the file system. Files added from outside of
+     * the root folders are not included.</p>
+     *
+     * @return  A new list of the entries in no particular order.
+     */
+    public List<PackEntry> getEntries() {
+        return _index.getEntries();
+    }
+
+    /**
+     * Get the names of the files and folders found in a folder.
+     *
+     * <p>Does not access the file system. Only folders that contain found
+     * files are included.</p>
+     *
+     * @param path  The '/' separated path of the folder relative to the root folder.
+     *              An empty string is the root folder.
+     *
+     * @return  The names in no particular order.
+     */
+    public List<String> getChildren(String path) {
+        return _index.getChildren(path);
+    }
+
+    /**
+     * Determine if a path is a folder that contains found files.
+     *
+     * @param path  The '/' separated path of the folder relative to the root folder.
+     *              An empty string is the root folder.
+     */
+    public boolean isDirectory(String path) {
+        return _index.isDirectory(path);
+    }
+
+    /**
+     * Get the path of a file relative to the root folder it is in.
+     *
+     * <p>Does not access the file system.</p>
+     *
+     * @param file  The file.
+     *
+     * @return  The '/' separated path or null if the file is not inside a root folder.
+     */
+    @Nullable
+    public String getPath(File file) {
+
+        file = file.getAbsoluteFile();
+
+        int rootIndex = getRootIndex(file);
+        if (rootIndex == -1)
+            return null;
+
+        return getPath(file, rootIndex);
+    }
+
+    /*
+     * Get the index of the root folder an absolute file is in or -1 if it
+     * is not in a root folder. The innermost root is used if roots are nested.
+     */
+    private int getRootIndex(File file) {
+
+        String path = file.getPath();
+        int result = -1;
+
+        for (int i = 0; i < _rootPaths.size(); i++) {
+
+            String rootPath = _rootPaths.get(i);
+
+            if (path.length() > rootPath.length() + 1 &&
+                    path.startsWith(rootPath) &&
+                    path.charAt(rootPath.length()) == File.separatorChar &&
+                    (result == -1 || rootPath.length() > _rootPaths.get(result).length())) {
+                result = i;
+            }
+        }
+
+        return result;
+    }
+
+    private String getPath(File file, int rootIndex) {
+
+        String path = file.getPath().substring(_rootPaths.get(rootIndex).length() + 1);
+
+        return File.separatorChar == '/'
+                ? path
+                : path.replace(File.separatorChar, '/');
     }
 
     /**
@@ -93,10 +620,202 @@ public class ResourcePackFiles {
     /**
      * Get a collection of {@code OggSound}'s that were found.
      *
-     * <p>Not modifiable.</p>
+     * <p>Not modifiable. The collection is a view of the current sounds.</p>
      */
     public Collection<OggSound> getSounds() {
-        return new ArrayList<>(_sounds);
+        return Collections.unmodifiableCollection(_sounds.values());
+    }
+
+    /**
+     * Get the sounds that replace default Minecraft sounds.
+     *
+     * <p>Not modifiable. Computed when first requested after the sounds change.</p>
+     */
+    public List<OggSound> getMinecraftSounds() {
+
+        if (_minecraftSounds == null)
+            partitionSounds();
+
+        return _minecraftSounds;
+    }
+
+    /**
+     * Get the sounds that do not replace default Minecraft sounds.
+     *
+     * <p>Sounds that are not in a sound folder are not included.</p>
+     *
+     * <p>Not modifiable. Computed when first requested after the sounds change.</p>
+     */
+    public List<OggSound> getExtraSounds() {
+
+        if (_extraSounds == null)
+            partitionSounds();
+
+        return _extraSounds;
+    }
+
+    /**
+     * Read the metadata of all sounds that have not been read.
+     *
+     * <p>Sounds are read in parallel using the thread count specified in the
+     * constructor. The largest files are started first so that a large file
+     * is not left running alone at the end.</p>
+     *
+     * <p>If the manifest is enabled, metadata is also cached in the first root
+     * folder and sound files that have not changed since they were cached
+     * are not read.</p>
+     *
+     * @return  The number of sounds read.
+     */
+    public int prefetchMetadata() {
+
+        SoundCache cache = null;
+
+        if (_useManifest) {
+
+            if (_soundCache == null)
+                _soundCache = SoundCache.load(_folder);
+
+            cache = _soundCache;
+            cache.retainAll(_sounds.values());
+        }
+
+        final Map<OggSound, PackEntry> entries = new HashMap<>(_sounds.size() * 2);
+        long totalBytes = 0;
+        int cached = 0;
+
+        for (OggSound sound : _sounds.values()) {
+            if (sound.hasMetadata())
+                continue;
+
+            PackEntry entry = getSoundEntry(sound);
+
+            if (cache != null && cache.restore(sound, entry.getSize(), entry.getLastModified())) {
+                cached++;
+                continue;
+            }
+
+            entries.put(sound, entry);
+            totalBytes += entry.getSize();
+        }
+
+        if (cache != null && cached > 0)
+            Log.verbose("Sound cache: " + cached + " sounds unchanged");
+
+        if (entries.isEmpty()) {
+            if (cache != null)
+                cache.save();
+            return 0;
+        }
+
+        List<OggSound> sounds = new ArrayList<>(entries.keySet());
+        Collections.sort(sounds, new Comparator<OggSound>() {
+            @Override
+            public int compare(OggSound o1, OggSound o2) {
+                return Long.compare(entries.get(o2).getSize(), entries.get(o1).getSize());
+            }
+        });
+
+        final SoundCache soundCache = cache;
+        final Progress progress = new Progress("Reading sounds", sounds.size(), totalBytes);
+        List<Callable<Void>> tasks = new ArrayList<>(sounds.size());
+
+        for (final OggSound sound : sounds) {
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    PackEntry entry = entries.get(sound);
+                    sound.getMetadata();
+
+                    if (soundCache != null)
+                        soundCache.store(sound, entry.getSize(), entry.getLastModified());
+
+                    progress.add(entry.getSize());
+                    return null;
+                }
+            });
+        }
+
+        Utils.invokeAll(tasks, _threads);
+        progress.finish();
+
+        if (cache != null)
+            cache.save();
+
+        return sounds.size();
+    }
+
+    /**
+     * Verify the integrity of all sound files.
+     *
+     * <p>Files are verified in parallel using the thread count specified in
+     * the constructor. The problems found in each corrupt file are logged as
+     * errors.</p>
+     *
+     * @return  The number of corrupt sound files.
+     */
+    public int verifySounds() {
+
+        if (_sounds.isEmpty())
+            return 0;
+
+        List<OggSound> sounds = new ArrayList<>(_sounds.values());
+        final Map<OggSound, PackEntry> entries = new HashMap<>(sounds.size() * 2);
+        long totalBytes = 0;
+
+        for (OggSound sound : sounds) {
+            PackEntry entry = getSoundEntry(sound);
+            entries.put(sound, entry);
+            totalBytes += entry.getSize();
+        }
+
+        // largest first, results are logged in the same order
+        Collections.sort(sounds, new Comparator<OggSound>() {
+            @Override
+            public int compare(OggSound o1, OggSound o2) {
+                return Long.compare(entries.get(o2).getSize(), entries.get(o1).getSize());
+            }
+        });
+
+        final Progress progress = new Progress("Verifying sounds", sounds.size(), totalBytes);
+        List<Callable<List<String>>> tasks = new ArrayList<>(sounds.size());
+
+        for (final OggSound sound : sounds) {
+            tasks.add(new Callable<List<String>>() {
+                @Override
+                public List<String> call() throws Exception {
+                    List<String> problems = OggVerifier.verify(sound.getFile());
+                    progress.add(entries.get(sound).getSize());
+                    return problems;
+                }
+            });
+        }
+
+        List<List<String>> results = Utils.invokeAll(tasks, _threads);
+        progress.finish();
+
+        int corrupt = 0;
+
+        for (int i = 0; i < sounds.size(); i++) {
+
+            List<String> problems = results.get(i);
+            if (problems != null && problems.isEmpty())
+                continue;
+
+            corrupt++;
+
+            // a null result is a file that could not be read and is already logged
+            if (problems == null)
+                continue;
+
+            Log.error("Corrupt sound file: " + sounds.get(i).getFile());
+
+            for (String problem : problems) {
+                Log.error("  " + problem);
+            }
+        }
+
+        return corrupt;
     }
 
     /**
@@ -110,61 +829,274 @@ public class ResourcePackFiles {
     }
 
     /**
-     * Get the resource pack root folder specified in constructor.
+     * Get the first resource pack root folder specified in constructor.
      */
     public File getRootFolder() {
         return _folder;
     }
 
     /**
-     * Recursively iterate folders to retrieve resource pack files.
-     *
-     * <p>Results are added to (@code _filesToAdd} field.</p>
-     *
-     * @param folder   The folder to search.
-     * @param zipPath  The relative path of the folder.
+     * Get the resource pack root folders in order of increasing priority.
      */
-    private void iterateFiles(File folder, String zipPath) {
+    public List<File> getRootFolders() {
+        return Collections.unmodifiableList(_roots);
+    }
 
-        File[] files = folder.listFiles();
-        if (files == null)
-            return;
+    /*
+     * Get the scanned entry of a sound file. Sound files that are not
+     * in the index are read from the file system.
+     */
+    private PackEntry getSoundEntry(OggSound sound) {
+
+        File file = sound.getFile();
+        String path = getPath(file);
+        PackEntry entry = path != null ? _index.get(path) : null;
+
+        if (entry != null && entry.getFile().equals(file))
+            return entry;
+
+        return new PackEntry(file, path != null ? path : file.getName(), "ogg",
+                file.length(), file.lastModified());
+    }
+
+    /*
+     * Scan all root folders in one pool. Results are in root order.
+     */
+    private List<List<PackEntry>> scanRoots(Progress progress) {
+
+        ForkJoinPool pool = new ForkJoinPool(_threads);
+
+        try {
+            List<ForkJoinTask<List<PackEntry>>> tasks = new ArrayList<>(_scanners.size());
+
+            for (FileScanner scanner : _scanners) {
+                tasks.add(scanner.scan(pool, progress));
+            }
+
+            List<List<PackEntry>> results = new ArrayList<>(tasks.size());
+
+            for (ForkJoinTask<List<PackEntry>> task : tasks) {
+                results.add(task.join());
+            }
+
+            return results;
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+
+    /*
+     * Apply changes detected by the folder watcher.
+     */
+    private void applyChanges(int rootIndex, List<PackEntry> updated, List<String> removed) {
+
+        PackChanges changes = new PackChanges();
+        Set<File> removedFiles = new HashSet<>(removed.size() * 2);
+        List<PackEntry> revealed = new ArrayList<>(0);
+
+        // removed paths may be files or folders
+        for (String path : removed) {
+            for (PackEntry entry : _index.remove(path)) {
 
-        for (File file : files) {
-            String name = file.getName();
+                // files from other roots are still present
+                if (getRootIndex(entry.getFile()) != rootIndex) {
+                    _index.put(entry);
+                    continue;
+                }
+
+                removedFiles.add(entry.getFile());
 
-            if(name.startsWith("."))
+                PackEntry shadowed = findShadowed(entry.getPath(), rootIndex);
+                if (shadowed != null)
+                    revealed.add(shadowed);
+            }
+        }
+
+        if (!removedFiles.isEmpty()) {
+
+            for (File file : removedFiles) {
+                OggSound sound = _sounds.remove(file);
+                if (sound != null)
+                    changes.removeSound(sound);
+            }
+
+            if (removedFiles.contains(_soundsjson))
+                _soundsjson = null;
+
+            for (File file : removedFiles) {
+                changes.removeFile(file);
+            }
+        }
+
+        if (!revealed.isEmpty()) {
+            updated = new ArrayList<>(updated);
+            updated.addAll(revealed);
+        }
+
+        for (PackEntry entry : updated) {
+
+            File file = entry.getFile();
+            PackEntry current = _index.get(entry.getPath());
+
+            // shadowed by a file in a later root
+            if (current != null && getRootIndex(current.getFile()) > getRootIndex(file))
+                continue;
+
+            PackEntry previous = _index.put(entry);
+
+            // a file from an earlier root is now shadowed
+            if (previous != null && !previous.getFile().equals(file)) {
+                changes.removeFile(previous.getFile());
+
+                OggSound sound = _sounds.remove(previous.getFile());
+                if (sound != null)
+                    changes.removeSound(sound);
+
+                previous = null;
+            }
+
+            if (previous == null) {
+                changes.addFile(file);
+
+                if (file.getName().equals("sounds.json"))
+                    _soundsjson = file;
+            }
+            else if (isModified(previous, entry)) {
+                changes.modifyFile(file);
+            }
+            else {
                 continue;
+            }
+
+            // replace sound so that its meta data is read again
+            if (entry.getExtension().equals("ogg")) {
+
+                OggSound sound = new OggSound(file);
+                _sounds.put(file, sound);
+
+                if (previous == null) {
+                    changes.addSound(sound);
+                }
+                else {
+                    changes.modifySound(sound);
+                }
+            }
+        }
+
+        if (!changes.isEmpty()) {
+            clearSoundViews();
+            onChanged(changes);
+        }
+    }
+
+    /*
+     * Find the file at a path in the highest priority root folder below
+     * the specified root folder.
+     */
+    @Nullable
+    private PackEntry findShadowed(String path, int rootIndex) {
+
+        for (int i = rootIndex - 1; i >= 0; i--) {
+
+            FileScanner scanner = _scanners.get(i);
+
+            PackEntry entry = scanner.scanFile(new File(scanner.getRoot(), path), path);
+            if (entry != null)
+                return entry;
+        }
+
+        return null;
+    }
+
+    /*
+     * Split sounds into default Minecraft replacements and extra sounds.
+     */
+    private void partitionSounds() {
+
+        List<OggSound> minecraft = new ArrayList<>(Math.min(_sounds.size(), 100));
+        List<OggSound> extra = new ArrayList<>(_sounds.size());
 
-            if (file.isDirectory()) {
+        for (OggSound sound : _sounds.values()) {
 
-                String path = (zipPath.isEmpty() ? File.separator : zipPath + File.separatorChar) + name;
+            String soundPath = sound.getSoundPath();
+            if (soundPath == null)
+                continue;
 
-                iterateFiles(file, path);
+            if (MinecraftSounds.contains(soundPath)) {
+                minecraft.add(sound);
             }
             else {
+                extra.add(sound);
+            }
+        }
 
-                String[] comp = PATTERN_DOT.split(name);
-                if (comp.length > 0) {
+        _minecraftSounds = Collections.unmodifiableList(minecraft);
+        _extraSounds = Collections.unmodifiableList(extra);
+    }
 
-                    String ext = comp[comp.length - 1].toLowerCase();
+    private void clearSoundViews() {
+        _minecraftSounds = null;
+        _extraSounds = null;
+    }
 
-                    boolean isSoundsJSON = name.equals("sounds.json");
+    private void onChanged(PackChanges changes) {
+        for (IPackChangeListener listener : _listeners) {
+            listener.onChanged(this, changes);
+        }
+    }
 
-                    if (_includeExt.contains(ext) || isSoundsJSON) {
+    private boolean isModified(PackEntry previous, PackEntry current) {
+        return previous.getSize() != current.getSize() ||
+                previous.getLastModified() != current.getLastModified();
+    }
 
-                        if (isSoundsJSON)
-                            _soundsjson = file;
+    /*
+     * View of the indexed files followed by the extra files.
+     */
+    private class FileCollection extends AbstractCollection<File> {
 
-                        _filesToAdd.add(file);
-                        System.out.println("Found " + zipPath + File.separatorChar + name);
-                    }
+        @Override
+        public int size() {
+            return _index.size() + _extraFiles.size();
+        }
 
-                    if (ext.equals("ogg")) {
-                        _sounds.add(new OggSound(file));
-                    }
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof File && ResourcePackFiles.this.contains((File) o);
+        }
+
+        @Override
+        public Iterator<File> iterator() {
+
+            final Iterator<PackEntry> entries = _index.getEntries().iterator();
+            final Iterator<File> extras = new ArrayList<>(_extraFiles).iterator();
+
+            return new Iterator<File>() {
+
+                @Override
+                public boolean hasNext() {
+                    return entries.hasNext() || extras.hasNext();
                 }
-            }
+
+                @Override
+                public File next() {
+
+                    if (entries.hasNext())
+                        return entries.next().getFile();
+
+                    if (extras.hasNext())
+                        return extras.next();
+
+                    throw new NoSuchElementException();
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
         }
     }
 }
@@ -24,6 +24,7 @@
 
 package com.jcwhatever.resourcepackermc;
 
+import com.jcwhatever.resourcepackermc.log.Log;
 import com.jcwhatever.resourcepackermc.sounds.OggSound;
 
 import java.io.File;
@@ -32,13 +33,28 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.net.URISyntaxException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
 
 /**
  * Static helper methods.
  */
 public class Utils {
 
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
     private Utils() {}
 
     /**
@@ -87,14 +103,14 @@ public class Utils {
             writer = new OutputStreamWriter(fileStream, "UTF-8");
             writeHandler.write(writer);
         } catch (IOException e) {
-            e.printStackTrace();
+            Log.error("Failed to write file: " + file, e);
         }
         finally {
             if (writer != null) {
                 try {
                     writer.close();
                 } catch (IOException e) {
-                    e.printStackTrace();
+                    Log.error("Failed to close file: " + file, e);
                 }
             }
         }
@@ -125,38 +141,195 @@ public class Utils {
             return result.toString();
         }
         catch (IOException e) {
-            e.printStackTrace();
+            Log.error("Failed to read file: " + file, e);
             return "";
         }
     }
 
     /**
-     * Find a file by case sensitive name. (Recursive)
+     * Get the lower case extension of a file name, not including the dot.
      *
-     * @param name    The name of the file.
-     * @param folder  THe folder to search in.
+     * @param name  The file name.
      *
-     * @return  The file or null if not found.
+     * @return  The extension or null if the name does not have one.
      */
-    public static File findFile(String name, File folder) {
+    @Nullable
+    public static String getExtension(String name) {
 
-        File[] files = folder.listFiles();
-        if (files == null)
+        int index = name.lastIndexOf('.');
+        if (index == -1 || index == name.length() - 1)
             return null;
 
-        for (File file : files) {
+        return name.substring(index + 1).toLowerCase();
+    }
+
+    /**
+     * Get the SHA-1 hash of a files contents.
+     *
+     * @param file  The file to hash.
+     *
+     * @throws IOException
+     */
+    public static byte[] getFileHash(File file) throws IOException {
+
+        MessageDigest digest = createDigest("SHA-1");
+        byte[] buffer = new byte[64 * 1024];
 
-            if (file.isDirectory()) {
-                File result = findFile(name, file);
-                if (result != null)
-                    return result;
+        FileInputStream stream = new FileInputStream(file);
+        try {
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
             }
-            else if (file.getName().equals(name)) {
-                return file;
+        }
+        finally {
+            stream.close();
+        }
+
+        return digest.digest();
+    }
+
+    /**
+     * Create a new {@code MessageDigest}.
+     *
+     * @param algorithm  The name of the digest algorithm. Must be an
+     *                   algorithm all Java platforms are required to support.
+     */
+    public static MessageDigest createDigest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Convert bytes to a lower case hex string.
+     *
+     * @param bytes  The bytes to convert.
+     */
+    public static String toHex(byte[] bytes) {
+
+        char[] result = new char[bytes.length * 2];
+
+        for (int i = 0; i < bytes.length; i++) {
+            result[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+            result[i * 2 + 1] = HEX[bytes[i] & 0xF];
+        }
+
+        return new String(result);
+    }
+
+    /**
+     * Run tasks in parallel and wait for them to finish.
+     *
+     * <p>Tasks that throw an exception have the exception logged and a
+     * null result.</p>
+     *
+     * <p>If the current thread is interrupted, tasks that have not started are
+     * cancelled and have a null result, tasks that are running are waited for so
+     * that their results are not lost, and the interrupt flag is set again before
+     * returning. The results always have one element per task.</p>
+     *
+     * @param tasks    The tasks to run.
+     * @param threads  The maximum number of threads to use.
+     * @param <T>      The task result type.
+     *
+     * @return  The task results in the same order as the tasks.
+     */
+    public static <T> List<T> invokeAll(Collection<? extends Callable<T>> tasks, int threads) {
+
+        List<T> results = new ArrayList<>(tasks.size());
+        if (tasks.isEmpty())
+            return results;
+
+        int poolSize = Math.max(1, Math.min(threads, tasks.size()));
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize, poolSize,
+                0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>());
+
+        List<Future<T>> futures = new ArrayList<>(tasks.size());
+
+        try {
+            for (Callable<T> task : tasks) {
+                futures.add(executor.submit(task));
+            }
+
+            for (Future<T> future : futures) {
+                results.add(getResult(future));
+            }
+        }
+        catch (InterruptedException e) {
+
+            // cancel tasks that have not started and wait for the running ones
+            List<Runnable> notStarted = new ArrayList<>(futures.size());
+            executor.getQueue().drainTo(notStarted);
+
+            for (Runnable task : notStarted) {
+                ((Future<?>) task).cancel(false);
+            }
+
+            executor.shutdown();
+            awaitTermination(executor);
+
+            for (int i = results.size(); i < futures.size(); i++) {
+                Future<T> future = futures.get(i);
+                results.add(future.isCancelled() ? null : getDoneResult(future));
+            }
+
+            Thread.currentThread().interrupt();
+        }
+        finally {
+            executor.shutdownNow();
+        }
+
+        return results;
+    }
+
+    @Nullable
+    private static <T> T getResult(Future<T> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Log.error("Task failed", e.getCause());
+            return null;
+        }
+    }
+
+    @Nullable
+    private static <T> T getDoneResult(Future<T> future) {
+
+        boolean isInterrupted = false;
+
+        try {
+            while (true) {
+                try {
+                    return getResult(future);
+                } catch (InterruptedException e) {
+                    isInterrupted = true;
+                }
+            }
+        }
+        finally {
+            if (isInterrupted)
+                Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void awaitTermination(ExecutorService executor) {
+
+        boolean isInterrupted = false;
+
+        while (true) {
+            try {
+                if (executor.awaitTermination(1, TimeUnit.MINUTES))
+                    break;
+            } catch (InterruptedException e) {
+                isInterrupted = true;
             }
         }
 
-        return null;
+        if (isInterrupted)
+            Thread.currentThread().interrupt();
     }
 
     public static String escape(String str, char escapeChar) {
@@ -172,7 +345,8 @@ public class Utils {
             return new File(
                     Main.class.getProtectionDomain().getCodeSource().getLocation().toURI().getPath());
         } catch (URISyntaxException e) {
-            e.printStackTrace();
+            Log.error("Failed to locate jar file", e);
+            Log.flush();
             System.exit(-1);
             return null;
         }
@@ -0,0 +1,515 @@
+/*
+ * This file is part of ResourcePackerMC for Bukkit, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) JCThePants (www.jcwhatever.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.jcwhatever.resourcepackermc.generators;
+
+import com.jcwhatever.resourcepackermc.ResourcePackFiles;
+import com.jcwhatever.resourcepackermc.Utils;
+import com.jcwhatever.resourcepackermc.Utils.ITextWriteHandler;
+import com.jcwhatever.resourcepackermc.log.Log;
+import com.jcwhatever.resourcepackermc.log.Progress;
+import com.jcwhatever.resourcepackermc.scanner.PackEntry;
+import com.jcwhatever.resourcepackermc.sounds.OggSound;
+
+import org.apache.sling.commons.json.JSONArray;
+import org.apache.sling.commons.json.JSONException;
+import org.apache.sling.commons.json.JSONObject;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import javax.annotation.Nullable;
+
+/**
+ * Generates a report of the memory a Minecraft client uses to load the
+ * textures and sounds of the resource pack.
+ *
+ * <p>Texture sizes are read from the PNG header only and counted as 4 bytes
+ * per pixel. Every frame of an animated texture is kept in memory, so the
+ * full image is counted. Sounds are counted by their decoded PCM size and only
+ * if they are loaded into memory instead of being streamed.</p>
+ *
+ * <p>The report is written as text unless JSON output is enabled.</p>
+ */
+public class LoadCostGenerator implements IGenerator {
+
+    /**
+     * The default number of the largest folders and files listed.
+     */
+    public static final int DEFAULT_TOP_COUNT = 10;
+
+    private static final String INDENT = "  ";
+    private static final byte[] PNG_SIGNATURE = new byte[] {
+            (byte)0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'
+    };
+    private static final int IHDR = 0x49484452;
+
+    private long _streamBudget = SoundsJSONGenerator.DEFAULT_STREAM_BUDGET;
+    private int _topCount = DEFAULT_TOP_COUNT;
+    private boolean _isJson;
+
+    /**
+     * Get the maximum decoded size in bytes of a sound that is not streamed.
+     */
+    public long getStreamBudget() {
+        return _streamBudget;
+    }
+
+    /**
+     * Set the maximum decoded size in bytes of a sound that is not streamed.
+     *
+     * <p>Should be the same budget used to generate the sounds.json file.</p>
+     *
+     * @param budget  The size in bytes.
+     */
+    public void setStreamBudget(long budget) {
+        _streamBudget = budget;
+    }
+
+    /**
+     * Get the number of the largest folders and files listed.
+     */
+    public int getTopCount() {
+        return _topCount;
+    }
+
+    /**
+     * Set the number of the largest folders and files listed.
+     *
+     * @param count  The number to list.
+     */
+    public void setTopCount(int count) {
+        _topCount = Math.max(0, count);
+    }
+
+    /**
+     * Determine if the report is written as JSON.
+     */
+    public boolean isJson() {
+        return _isJson;
+    }
+
+    /**
+     * Set the report to be written as JSON instead of text.
+     *
+     * @param isJson  True to write JSON.
+     */
+    public void setJson(boolean isJson) {
+        _isJson = isJson;
+    }
+
+    @Override
+    public void generateFile(ResourcePackFiles packFiles, File root) {
+        File file = new File(root, _isJson ? "LOAD_COST.json" : "LOAD_COST.TXT");
+        generate(packFiles, file);
+    }
+
+    @Override
+    public void generate(ResourcePackFiles packFiles, File file) {
+
+        final StringBuilder sb = new StringBuilder(1024);
+        generate(packFiles, sb);
+
+        Utils.writeTextFile(file, new ITextWriteHandler() {
+            @Override
+            public void write(OutputStreamWriter writer) throws IOException {
+                writer.append(sb);
+            }
+        });
+    }
+
+    @Override
+    public void generate(ResourcePackFiles packFiles, StringBuilder sb) {
+
+        Report textures = getTextures(packFiles);
+        Report sounds = getSounds(packFiles);
+
+        if (_isJson) {
+            try {
+                JSONObject json = new JSONObject();
+                json.put("totalBytes", textures.bytes + sounds.bytes);
+                json.put("textures", textures.toJSON());
+                json.put("sounds", sounds.toJSON());
+
+                sb.append(json.toString(4));
+            } catch (JSONException e) {
+                Log.error("Failed to generate load cost report", e);
+            }
+            return;
+        }
+
+        textures.write(sb);
+        sb.append('\n');
+        sounds.write(sb);
+        sb.append('\n');
+        sb.append("Total: ").append(Progress.formatBytes(textures.bytes + sounds.bytes)).append('\n');
+    }
+
+    /*
+     * Read the PNG header and animation metadata of all textures in parallel.
+     */
+    private Report getTextures(final ResourcePackFiles packFiles) {
+
+        List<Callable<Item>> tasks = new ArrayList<>(100);
+
+        for (final PackEntry entry : packFiles.getEntries()) {
+
+            if (!"png".equals(entry.getExtension()))
+                continue;
+
+            tasks.add(new Callable<Item>() {
+                @Override
+                public Item call() throws Exception {
+                    return readTexture(packFiles, entry);
+                }
+            });
+        }
+
+        Report report = new Report("Textures", "animated", "animated", "frames", "frames");
+
+        for (Item item : Utils.invokeAll(tasks, packFiles.getThreadCount())) {
+            if (item == null)
+                continue;
+
+            report.add(item);
+
+            if (item.frames > 1) {
+                report.special++;
+                report.units += item.frames;
+            }
+            else {
+                report.units++;
+            }
+        }
+
+        return report;
+    }
+
+    /*
+     * Get the decoded size of all sounds that are loaded into memory.
+     */
+    private Report getSounds(ResourcePackFiles packFiles) {
+
+        packFiles.prefetchMetadata();
+
+        Report report = new Report("Sounds loaded into memory", "streamed", "streamed and not counted",
+                "seconds", "seconds");
+
+        for (OggSound sound : packFiles.getSounds()) {
+
+            long decodedSize = sound.getDecodedSize();
+
+            if (decodedSize > _streamBudget) {
+                report.special++;
+                continue;
+            }
+
+            String path = packFiles.getPath(sound.getFile());
+            if (path == null)
+                path = sound.getFile().getName();
+
+            Item item = new Item(path, decodedSize);
+            item.channels = sound.getChannels();
+            item.seconds = sound.getTotalSeconds();
+
+            report.add(item);
+            report.units += item.seconds;
+        }
+
+        return report;
+    }
+
+    @Nullable
+    private Item readTexture(ResourcePackFiles packFiles, PackEntry entry) throws IOException {
+
+        int width;
+        int height;
+
+        DataInputStream stream = new DataInputStream(new FileInputStream(entry.getFile()));
+        try {
+            byte[] signature = new byte[PNG_SIGNATURE.length];
+            stream.readFully(signature);
+
+            for (int i = 0; i < signature.length; i++) {
+                if (signature[i] != PNG_SIGNATURE[i]) {
+                    Log.warning("Not a PNG file: " + entry.getPath());
+                    return null;
+                }
+            }
+
+            // the IHDR chunk is always first
+            stream.readInt();
+            if (stream.readInt() != IHDR) {
+                Log.warning("PNG header not found: " + entry.getPath());
+                return null;
+            }
+
+            width = stream.readInt();
+            height = stream.readInt();
+        }
+        catch (EOFException e) {
+            Log.warning("Not a PNG file: " + entry.getPath());
+            return null;
+        }
+        finally {
+            stream.close();
+        }
+
+        Item item = new Item(entry.getPath(), (long)width * height * 4);
+        item.width = width;
+        item.height = height;
+        item.frames = getFrames(packFiles, entry, width, height);
+
+        return item;
+    }
+
+    /*
+     * Get the number of animation frames in a texture from its .png.mcmeta file.
+     */
+    private int getFrames(ResourcePackFiles packFiles, PackEntry entry, int width, int height) {
+
+        PackEntry mcmeta = packFiles.getEntry(entry.getPath() + ".mcmeta");
+        if (mcmeta == null)
+            return 1;
+
+        try {
+            JSONObject json = new JSONObject(Utils.scanTextFile(mcmeta.getFile()));
+            JSONObject animation = json.optJSONObject("animation");
+            if (animation == null)
+                return 1;
+
+            // frames are stacked vertically and are square unless a size is specified
+            int frameWidth = animation.optInt("width", Math.min(width, height));
+            int frameHeight = animation.optInt("height", frameWidth);
+            if (frameWidth <= 0 || frameHeight <= 0)
+                return 1;
+
+            return Math.max(1, (width / frameWidth) * (height / frameHeight));
+        }
+        catch (JSONException e) {
+            Log.warning("Invalid animation file: " + mcmeta.getPath());
+            return 1;
+        }
+    }
+
+    private static String getFolder(String path) {
+        int index = path.lastIndexOf('/');
+        return index == -1 ? "" : path.substring(0, index);
+    }
+
+    /*
+     * A texture or sound and its decoded size.
+     */
+    private static class Item {
+
+        final String path;
+        final long bytes;
+        int width;
+        int height;
+        int frames;
+        int channels;
+        long seconds;
+
+        Item(String path, long bytes) {
+            this.path = path;
+            this.bytes = bytes;
+        }
+    }
+
+    /*
+     * The totals of a folder.
+     */
+    private static class Folder {
+
+        final String path;
+        long bytes;
+        int count;
+
+        Folder(String path) {
+            this.path = path;
+        }
+    }
+
+    /*
+     * The totals and largest folders and files of textures or sounds.
+     */
+    private class Report {
+
+        final String title;
+        final String specialKey;
+        final String specialName;
+        final String unitKey;
+        final String unitName;
+        final List<Item> items = new ArrayList<>(100);
+        final Map<String, Folder> folders = new HashMap<>(20);
+        long bytes;
+        long units;
+        int special;
+
+        // the keys are the JSON names and the names are shown in the text report
+        Report(String title, String specialKey, String specialName,
+               String unitKey, String unitName) {
+            this.title = title;
+            this.specialKey = specialKey;
+            this.specialName = specialName;
+            this.unitKey = unitKey;
+            this.unitName = unitName;
+        }
+
+        void add(Item item) {
+
+            items.add(item);
+            bytes += item.bytes;
+
+            String path = getFolder(item.path);
+            Folder folder = folders.get(path);
+            if (folder == null) {
+                folder = new Folder(path);
+                folders.put(path, folder);
+            }
+
+            folder.bytes += item.bytes;
+            folder.count++;
+        }
+
+        List<Item> getTopItems() {
+
+            List<Item> result = new ArrayList<>(items);
+            Collections.sort(result, new Comparator<Item>() {
+                @Override
+                public int compare(Item o1, Item o2) {
+                    int compare = Long.compare(o2.bytes, o1.bytes);
+                    return compare != 0 ? compare : o1.path.compareTo(o2.path);
+                }
+            });
+
+            return result.subList(0, Math.min(_topCount, result.size()));
+        }
+
+        List<Folder> getTopFolders() {
+
+            List<Folder> result = new ArrayList<>(folders.values());
+            Collections.sort(result, new Comparator<Folder>() {
+                @Override
+                public int compare(Folder o1, Folder o2) {
+                    int compare = Long.compare(o2.bytes, o1.bytes);
+                    return compare != 0 ? compare : o1.path.compareTo(o2.path);
+                }
+            });
+
+            return result.subList(0, Math.min(_topCount, result.size()));
+        }
+
+        void write(StringBuilder sb) {
+
+            sb.append(title).append(": ").append(items.size()).append(" files, ")
+                    .append(Progress.formatBytes(bytes)).append(" decoded, ")
+                    .append(special).append(' ').append(specialName).append(", ")
+                    .append(units).append(' ').append(unitName).append('\n');
+
+            if (items.isEmpty())
+                return;
+
+            sb.append(INDENT).append("Largest folders:\n");
+
+            for (Folder folder : getTopFolders()) {
+                sb.append(INDENT).append(INDENT)
+                        .append(Progress.formatBytes(folder.bytes)).append("  ")
+                        .append(folder.path.isEmpty() ? "/" : folder.path)
+                        .append(" (").append(folder.count).append(" files)\n");
+            }
+
+            sb.append(INDENT).append("Largest files:\n");
+
+            for (Item item : getTopItems()) {
+                sb.append(INDENT).append(INDENT)
+                        .append(Progress.formatBytes(item.bytes)).append("  ")
+                        .append(item.path).append(" (");
+
+                if (item.width > 0) {
+                    sb.append(item.width).append('x').append(item.height);
+                    if (item.frames > 1)
+                        sb.append(", ").append(item.frames).append(" frames");
+                }
+                else {
+                    sb.append(item.seconds).append(" s, ").append(item.channels)
+                            .append(item.channels == 1 ? " channel" : " channels");
+                }
+
+                sb.append(")\n");
+            }
+        }
+
+        JSONObject toJSON() throws JSONException {
+
+            JSONObject json = new JSONObject();
+            json.put("count", items.size());
+            json.put("bytes", bytes);
+            json.put(specialKey, special);
+            json.put(unitKey, units);
+
+            JSONArray folderArray = new JSONArray();
+            for (Folder folder : getTopFolders()) {
+                JSONObject folderJson = new JSONObject();
+                folderJson.put("path", folder.path);
+                folderJson.put("count", folder.count);
+                folderJson.put("bytes", folder.bytes);
+                folderArray.put(folderJson);
+            }
+            json.put("folders", folderArray);
+
+            JSONArray itemArray = new JSONArray();
+            for (Item item : getTopItems()) {
+                JSONObject itemJson = new JSONObject();
+                itemJson.put("path", item.path);
+                itemJson.put("bytes", item.bytes);
+
+                if (item.width > 0) {
+                    itemJson.put("width", item.width);
+                    itemJson.put("height", item.height);
+                    itemJson.put("frames", item.frames);
+                }
+                else {
+                    itemJson.put("seconds", item.seconds);
+                    itemJson.put("channels", item.channels);
+                }
+
+                itemArray.put(itemJson);
+            }
+            json.put("files", itemArray);
+
+            return json;
+        }
+    }
+}
@@ -27,7 +27,7 @@ package com.jcwhatever.resourcepackermc.generators;
 import com.jcwhatever.resourcepackermc.ResourcePackFiles;
 import com.jcwhatever.resourcepackermc.Utils;
 import com.jcwhatever.resourcepackermc.Utils.ITextWriteHandler;
-import com.jcwhatever.resourcepackermc.sounds.MinecraftSounds;
+import com.jcwhatever.resourcepackermc.log.Log;
 import com.jcwhatever.resourcepackermc.sounds.OggSound;
 
 import java.io.File;
@@ -51,7 +51,7 @@ public class NucleusGenerator implements IGenerator {
     @Override
     public void generate(ResourcePackFiles files, File file) {
 
-        final Collection<OggSound> sounds = MinecraftSounds.removeMinecraft(files.getSounds());
+        final Collection<OggSound> sounds = files.getExtraSounds();
 
         Utils.writeTextFile(file, new ITextWriteHandler() {
             @Override
@@ -66,7 +66,7 @@ public class NucleusGenerator implements IGenerator {
     @Override
     public void generate(ResourcePackFiles files, StringBuilder sb) {
 
-        Collection<OggSound> sounds = MinecraftSounds.removeMinecraft(files.getSounds());
+        Collection<OggSound> sounds = files.getExtraSounds();
 
         try {
             for (OggSound sound : sounds) {
@@ -74,7 +74,7 @@ public class NucleusGenerator implements IGenerator {
             }
         }
         catch (IOException e) {
-            e.printStackTrace();
+            Log.error("Failed to generate resource-sounds.yml", e);
         }
     }
 
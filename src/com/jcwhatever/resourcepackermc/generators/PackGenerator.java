@@ -25,20 +25,268 @@
 package com.jcwhatever.resourcepackermc.generators;
 
 import com.jcwhatever.resourcepackermc.ResourcePackFiles;
-
-import net.lingala.zip4j.core.ZipFile;
-import net.lingala.zip4j.exception.ZipException;
-import net.lingala.zip4j.model.ZipParameters;
-import net.lingala.zip4j.util.Zip4jConstants;
+import com.jcwhatever.resourcepackermc.Utils;
+import com.jcwhatever.resourcepackermc.log.Log;
+import com.jcwhatever.resourcepackermc.log.Progress;
+import com.jcwhatever.resourcepackermc.scanner.ScanManifest;
+import com.jcwhatever.resourcepackermc.sounds.ogg.OggSlimmer;
+import com.jcwhatever.resourcepackermc.zip.CompressedData;
+import com.jcwhatever.resourcepackermc.zip.CompressionPolicy;
+import com.jcwhatever.resourcepackermc.zip.PackZipReader;
+import com.jcwhatever.resourcepackermc.zip.PackZipWriter;
+import com.jcwhatever.resourcepackermc.zip.ParallelCompressor;
+import com.jcwhatever.resourcepackermc.zip.ParallelCompressor.ICompressedHandler;
+import com.jcwhatever.resourcepackermc.zip.ZipRecord;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nullable;
 
 /**
  * Generates resource pack zip file.
  */
 public class PackGenerator implements IGenerator {
 
+    /**
+     * The default modified time of entries in reproducible zip files,
+     * 1980-01-01 00:00 UTC, the earliest MS-DOS time.
+     */
+    public static final long DEFAULT_FIXED_TIME = 315532800000L;
+
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    // the most bytes of file data and compressed data held at once
+    private static final long MAX_PENDING_BYTES = 128 * 1024 * 1024;
+
+    private boolean _deduplicate;
+    private boolean _incremental;
+    private boolean _reproducible;
+    private long _fixedTime = DEFAULT_FIXED_TIME;
+    private boolean _isSha256;
+
+    private File _file;
+    private String _sha1;
+    private String _sha256;
+    private Set<String> _slimComments;
+    private CompressionPolicy _policy = new CompressionPolicy(Collections.<String>emptyList());
+
+    /**
+     * Determine if files with identical contents are stored once in the zip file.
+     */
+    public boolean isDeduplicate() {
+        return _deduplicate;
+    }
+
+    /**
+     * Set files with identical contents to be stored once in the zip file.
+     *
+     * <p>Each duplicate still has its own entry, but the entry refers to the
+     * data of the first file with the same contents.</p>
+     *
+     * @param deduplicate  True to deduplicate.
+     */
+    public void setDeduplicate(boolean deduplicate) {
+        _deduplicate = deduplicate;
+    }
+
+    /**
+     * Determine if the compressed data of unchanged files is copied from
+     * the previous zip file.
+     */
+    public boolean isIncremental() {
+        return _incremental;
+    }
+
+    /**
+     * Set the compressed data of unchanged files to be copied from the
+     * previous zip file instead of compressing the files again.
+     *
+     * <p>A file is unchanged if its entry in the previous zip file has the
+     * same size, modified time and CRC-32. If the manifest is used and the
+     * compression rules changed since the previous zip file was generated,
+     * all files are compressed again.</p>
+     *
+     * @param incremental  True to copy unchanged files.
+     */
+    public void setIncremental(boolean incremental) {
+        _incremental = incremental;
+    }
+
+    /**
+     * Get the policy that decides how each entry is compressed.
+     */
+    public CompressionPolicy getCompressionPolicy() {
+        return _policy;
+    }
+
+    /**
+     * Set the policy that decides how each entry is compressed.
+     *
+     * <p>By default only the {@link CompressionPolicy#DEFAULT_RULES} are used.</p>
+     *
+     * @param policy  The policy.
+     */
+    public void setCompressionPolicy(CompressionPolicy policy) {
+        _policy = policy;
+    }
+
+    /**
+     * Determine if the zip file is reproducible.
+     */
+    public boolean isReproducible() {
+        return _reproducible;
+    }
+
+    /**
+     * Set the zip file to be reproducible.
+     *
+     * <p>Entries of a reproducible zip file are sorted by name and all have the
+     * fixed modified time instead of the modified time of their file, so the same
+     * files always produce the same zip file.</p>
+     *
+     * @param reproducible  True to make the zip file reproducible.
+     */
+    public void setReproducible(boolean reproducible) {
+        _reproducible = reproducible;
+    }
+
+    /**
+     * Get the modified time in milliseconds of entries in a reproducible zip file.
+     */
+    public long getFixedTime() {
+        return _fixedTime;
+    }
+
+    /**
+     * Set the modified time of entries in a reproducible zip file.
+     *
+     * <p>The time is converted to an MS-DOS time in UTC so that it does not
+     * depend on the time zone of the computer.</p>
+     *
+     * @param time  The time in milliseconds.
+     */
+    public void setFixedTime(long time) {
+        _fixedTime = time;
+    }
+
+    /**
+     * Get the lower case keys of the comments removed from sound files.
+     *
+     * @return  The keys or null if sound files are not slimmed.
+     */
+    @Nullable
+    public Set<String> getSlimComments() {
+        return _slimComments;
+    }
+
+    /**
+     * Set sound files to be slimmed before they are added to the zip file.
+     *
+     * <p>Slimmed sound files only contain their Vorbis stream, without the
+     * specified comments or header padding. The source files are not
+     * modified.</p>
+     *
+     * @param comments  The keys of the comments to remove or null to not slim.
+     */
+    public void setSlimComments(@Nullable Collection<String> comments) {
+
+        if (comments == null) {
+            _slimComments = null;
+            return;
+        }
+
+        _slimComments = new TreeSet<>();
+
+        for (String comment : comments) {
+            _slimComments.add(comment.toLowerCase());
+        }
+    }
+
+    /**
+     * Determine if the SHA-256 of the zip file is computed as well as the SHA-1.
+     */
+    public boolean isSha256() {
+        return _isSha256;
+    }
+
+    /**
+     * Set the SHA-256 of the zip file to be computed as well as the SHA-1.
+     *
+     * @param isSha256  True to compute the SHA-256.
+     */
+    public void setSha256(boolean isSha256) {
+        _isSha256 = isSha256;
+    }
+
+    /**
+     * Get the hex SHA-1 of the last generated zip file.
+     *
+     * <p>The hash is computed from the bytes as they are written, or taken from
+     * the manifest if the zip file is up to date.</p>
+     *
+     * @return  The hash or null if the zip file was not generated.
+     */
+    @Nullable
+    public String getSha1() {
+        return _sha1;
+    }
+
+    /**
+     * Get the hex SHA-256 of the last generated zip file.
+     *
+     * @return  The hash or null if the zip file was not generated or
+     * the SHA-256 is not computed.
+     */
+    @Nullable
+    public String getSha256() {
+        return _sha256;
+    }
+
+    /**
+     * Get the name, size and hashes of the last generated zip file
+     * as lines of {@code key=value} pairs.
+     *
+     * @return  The lines or null if the zip file was not generated.
+     */
+    @Nullable
+    public String getHashInfo() {
+
+        if (_sha1 == null)
+            return null;
+
+        StringBuilder sb = new StringBuilder(150);
+        sb.append("file=").append(_file.getName()).append('\n');
+        sb.append("size=").append(_file.length()).append('\n');
+        sb.append("sha1=").append(_sha1).append('\n');
+
+        if (_sha256 != null)
+            sb.append("sha256=").append(_sha256).append('\n');
+
+        return sb.toString();
+    }
+
     @Override
     public void generateFile(ResourcePackFiles packFiles, File root) {
         File file = new File(root, "pack.zip");
@@ -48,32 +296,643 @@ public class PackGenerator implements IGenerator {
     @Override
     public void generate(ResourcePackFiles packFiles, File file) {
 
-        if (file.exists())
-            file.delete();
+        _file = file;
+        _sha1 = null;
+        _sha256 = null;
+
+        ArrayList<File> files = new ArrayList<>(packFiles.getFiles());
+        files.removeAll(packFiles.getExcluded());
+
+        if (_reproducible)
+            sortByEntryName(packFiles, files);
+
+        ScanManifest manifest = packFiles.getManifest();
+        String fingerprint = manifest != null
+                ? getFingerprint(packFiles, manifest, files)
+                : null;
+
+        if (fingerprint != null && file.exists() && manifest.isPackCurrent(file, fingerprint)) {
+            Log.info("Resource pack is up to date: " + file.getName());
+
+            _sha1 = manifest.getPackSha1();
+            _sha256 = _isSha256 ? manifest.getPackSha256() : null;
+
+            // the manifest is from an older version or the SHA-256 was not computed
+            if (_sha1 == null || (_isSha256 && _sha256 == null)) {
+                if (hashFile(file)) {
+                    manifest.setPack(file, fingerprint, getRulesFingerprint(), _sha1, _sha256);
+                    manifest.save();
+                }
+            }
+            return;
+        }
+
+        List<byte[]> hashes = _deduplicate
+                ? getHashes(manifest, files, packFiles.getThreadCount())
+                : Collections.<byte[]>nCopies(files.size(), null);
+
+        Map<File, File> slimmed = _slimComments != null
+                ? slimSounds(files, packFiles.getThreadCount())
+                : Collections.<File, File>emptyMap();
+
+        if (Thread.currentThread().isInterrupted()) {
+            Log.error("Interrupted before writing zip file: " + file);
+
+            for (File temp : slimmed.values()) {
+                temp.delete();
+            }
+            return;
+        }
+
+        List<ZipEntryInfo> entries = getEntries(packFiles, files, hashes);
+
+        for (ZipEntryInfo entry : entries) {
+            if (slimmed.containsKey(entry.file))
+                entry.source = slimmed.get(entry.file);
+        }
+
+        long totalBytes = 0;
+
+        for (ZipEntryInfo entry : entries) {
+            if (entry.original == null)
+                totalBytes += entry.source.length();
+        }
+
+        final Map<ZipRecord, List<String>> duplicates = new LinkedHashMap<>(10);
+        final Progress progress = new Progress("Packing", entries.size(), totalBytes);
+        final AtomicInteger reused = new AtomicInteger();
+
+        // the previous zip file is read while the new one is written
+        PackZipReader previous = _incremental && file.exists() && isPolicyUnchanged(manifest, file)
+                ? openPrevious(file)
+                : null;
+
+        File tempFile = new File(file.getAbsoluteFile().getParentFile(), file.getName() + ".tmp");
+
+        MessageDigest sha1 = Utils.createDigest("SHA-1");
+        MessageDigest sha256 = _isSha256 ? Utils.createDigest("SHA-256") : null;
+
+        PackZipWriter writer = null;
+        ParallelCompressor<ZipEntryInfo> compressor = null;
+        boolean isWritten = false;
 
         try {
-            ZipFile zip = new ZipFile(file);
-            zip.setFileNameCharset("UTF-8");
+            // the zip file is hashed as it is written
+            OutputStream out = new DigestOutputStream(new FileOutputStream(tempFile), sha1);
+            if (sha256 != null)
+                out = new DigestOutputStream(out, sha256);
+
+            final PackZipWriter zipWriter = new PackZipWriter(out);
+            writer = zipWriter;
+
+            // entries are compressed in parallel and written in order on this thread
+            compressor = new ParallelCompressor<>(packFiles.getThreadCount(), MAX_PENDING_BYTES,
+                    new ICompressedHandler<ZipEntryInfo>() {
+                        @Override
+                        public void onCompressed(ZipEntryInfo entry, @Nullable CompressedData data)
+                                throws IOException {
+
+                            // entries added without a task are duplicates of an earlier entry
+                            if (data == null) {
+                                zipWriter.writeAlias(entry.name, entry.original.record);
+
+                                List<String> names = duplicates.get(entry.original.record);
+                                if (names == null) {
+                                    names = new ArrayList<>(3);
+                                    duplicates.put(entry.original.record, names);
+                                }
+                                names.add(entry.name);
+                                progress.add(0);
+                                return;
+                            }
+
+                            entry.record = zipWriter.writeRaw(entry.name, getDosTime(entry.file),
+                                    data.getMethod(), data.getCrc(), data.getSize(),
+                                    data.getData(), 0, data.getLength());
+                            progress.add(data.getSize());
+                        }
+                    });
+
+            for (ZipEntryInfo entry : entries) {
 
-            ZipParameters parameters = new ZipParameters();
-            parameters.setCompressionMethod(Zip4jConstants.COMP_DEFLATE);
-            //parameters.setDefaultFolderPath(zipPath.isEmpty() ? File.separator : zipPath);
-            parameters.setDefaultFolderPath(packFiles.getRootFolder().getAbsolutePath());
+                if (entry.original != null)
+                    compressor.add(entry, null, 0);
+                else
+                    compressor.add(entry, getCompressTask(previous, entry, reused), entry.source.length());
+            }
 
-            ArrayList<File> files = new ArrayList<>(packFiles.getFiles());
-            files.removeAll(packFiles.getExcluded());
+            compressor.finish();
+            writer.finish();
+            progress.finish();
+            isWritten = true;
 
-            zip.addFiles(files, parameters);
+            if (previous != null) {
+                Log.info("Copied " + reused.get() + " unchanged entries from the previous zip file, compressed " +
+                        (entries.size() - reused.get() - getAliasCount(entries)) + '.');
+            }
 
+            if (_deduplicate)
+                printDuplicates(duplicates);
+
+            _policy.printReport();
+        }
+        catch (IOException e) {
+            Log.error("Failed to write zip file: " + file, e);
         }
-        catch (ZipException e) {
-            e.printStackTrace();
+        finally {
+            if (compressor != null)
+                compressor.close();
+
+            if (writer != null) {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    Log.error("Failed to close zip file: " + file, e);
+                    isWritten = false;
+                }
+            }
+
+            if (previous != null) {
+                try {
+                    previous.close();
+                } catch (IOException e) {
+                    Log.error("Failed to close zip file: " + file, e);
+                }
+            }
+
+            for (File temp : slimmed.values()) {
+                temp.delete();
+            }
+        }
+
+        if (!isWritten) {
+            tempFile.delete();
+            return;
         }
 
+        try {
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Log.error("Failed to replace zip file: " + file, e);
+            tempFile.delete();
+            return;
+        }
+
+        _sha1 = Utils.toHex(sha1.digest());
+        _sha256 = sha256 != null ? Utils.toHex(sha256.digest()) : null;
+
+        if (fingerprint != null) {
+            manifest.setPack(file, fingerprint, getRulesFingerprint(), _sha1, _sha256);
+            manifest.save();
+        }
     }
 
     @Override
     public void generate(ResourcePackFiles packFiles, StringBuilder sb) {
         throw new UnsupportedOperationException();
     }
+
+    /**
+     * Get the name of a files zip entry.
+     *
+     * <p>Files outside of the resource pack folder are added to the root
+     * of the zip file.</p>
+     *
+     * @param packFiles  The resource pack files.
+     * @param file       The file.
+     */
+    private String getEntryName(ResourcePackFiles packFiles, File file) {
+
+        String path = packFiles.getPath(file);
+        return path != null ? path : file.getName();
+    }
+
+    /**
+     * Determine if the entries of the previous zip file were compressed with
+     * the current compression rules.
+     *
+     * <p>Without a manifest the rules are not known and entries are only checked
+     * against the compression method of their rule.</p>
+     *
+     * @param manifest  The resource pack manifest. May be null.
+     * @param file      The previous zip file.
+     */
+    private boolean isPolicyUnchanged(@Nullable ScanManifest manifest, File file) {
+
+        if (manifest == null || getRulesFingerprint().equals(manifest.getPackRules(file)))
+            return true;
+
+        Log.info("Compression rules changed or not recorded, compressing all entries again.");
+        return false;
+    }
+
+    /**
+     * Get a fingerprint of the compression rules.
+     */
+    private String getRulesFingerprint() {
+
+        MessageDigest digest = Utils.createDigest("SHA-1");
+        digest.update(_policy.getRules().getBytes(StandardCharsets.UTF_8));
+
+        return Utils.toHex(digest.digest());
+    }
+
+    /**
+     * Open the previous zip file to copy unchanged entries from.
+     *
+     * @param file  The previous zip file.
+     *
+     * @return  The reader or null if the file could not be read.
+     */
+    @Nullable
+    private PackZipReader openPrevious(File file) {
+        try {
+            return new PackZipReader(file);
+        } catch (IOException e) {
+            Log.warning("Cannot copy entries from the previous zip file, " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Get a task that compresses an entry using the compression policy.
+     *
+     * <p>If there is a previous zip file and the file is unchanged, the compressed
+     * data is copied from the previous zip file instead, unless a {@code store} or
+     * {@code deflate} rule now matches an entry that was compressed with the other
+     * method or the previous entry is encrypted or is not stored or deflated.
+     * Entries that cannot be read from the previous zip file are compressed.</p>
+     *
+     * @param previous  The previous zip file. May be null.
+     * @param entry     The entry.
+     * @param reused    Incremented when the data is copied.
+     */
+    private Callable<CompressedData> getCompressTask(@Nullable final PackZipReader previous,
+                                                     final ZipEntryInfo entry,
+                                                     final AtomicInteger reused) {
+        final CompressionPolicy policy = _policy;
+
+        return new Callable<CompressedData>() {
+            @Override
+            public CompressedData call() throws Exception {
+
+                ZipRecord record = previous != null
+                        ? previous.getRecord(entry.name)
+                        : null;
+
+                if (record != null &&
+                        record.isCopyable() &&
+                        record.getSize() == entry.source.length() &&
+                        record.getDosTime() == getDosTime(entry.file) &&
+                        policy.isMethodAllowed(entry.name, record.getSize(), record.getMethod()) &&
+                        record.getCrc() == CompressedData.getCrc(entry.source)) {
+
+                    try {
+                        CompressedData data = previous.readData(record);
+                        reused.incrementAndGet();
+                        return data;
+                    }
+                    catch (IOException e) {
+                        Log.verbose("Not copied from the previous zip file, " + e.getMessage() +
+                                ": " + entry.name);
+                    }
+                }
+
+                return policy.compress(entry.name, entry.source);
+            }
+        };
+    }
+
+    private int getAliasCount(List<ZipEntryInfo> entries) {
+
+        int count = 0;
+
+        for (ZipEntryInfo entry : entries) {
+            if (entry.original != null)
+                count++;
+        }
+
+        return count;
+    }
+
+    /**
+     * Get the zip entries to write in the order they are written.
+     *
+     * @param packFiles  The resource pack files.
+     * @param files      The files to pack.
+     * @param hashes     The hashes of the files in the same order as the files.
+     *                   Files with the same hash are written once.
+     */
+    private List<ZipEntryInfo> getEntries(ResourcePackFiles packFiles, List<File> files,
+                                          List<byte[]> hashes) {
+
+        List<ZipEntryInfo> entries = new ArrayList<>(files.size());
+        Set<String> names = new HashSet<>(files.size() * 2);
+        Map<String, ZipEntryInfo> unique = new HashMap<>(files.size());
+
+        for (int i = 0; i < files.size(); i++) {
+
+            File current = files.get(i);
+            String name = getEntryName(packFiles, current);
+            byte[] hash = hashes.get(i);
+
+            if (!names.add(name))
+                continue;
+
+            ZipEntryInfo entry = new ZipEntryInfo(name, current);
+            entries.add(entry);
+
+            if (hash == null)
+                continue;
+
+            String hex = Utils.toHex(hash);
+            entry.original = unique.get(hex);
+
+            if (entry.original == null)
+                unique.put(hex, entry);
+        }
+
+        return entries;
+    }
+
+    /**
+     * Read an existing zip file to compute its hashes.
+     *
+     * @param file  The zip file.
+     *
+     * @return  True if the file was read.
+     */
+    private boolean hashFile(File file) {
+
+        MessageDigest sha1 = Utils.createDigest("SHA-1");
+        MessageDigest sha256 = _isSha256 ? Utils.createDigest("SHA-256") : null;
+        byte[] buffer = new byte[64 * 1024];
+
+        try {
+            FileInputStream stream = new FileInputStream(file);
+            try {
+                int read;
+                while ((read = stream.read(buffer)) != -1) {
+                    sha1.update(buffer, 0, read);
+
+                    if (sha256 != null)
+                        sha256.update(buffer, 0, read);
+                }
+            }
+            finally {
+                stream.close();
+            }
+        }
+        catch (IOException e) {
+            Log.error("Failed to read zip file: " + file, e);
+            return false;
+        }
+
+        _sha1 = Utils.toHex(sha1.digest());
+        _sha256 = sha256 != null ? Utils.toHex(sha256.digest()) : null;
+        return true;
+    }
+
+    /**
+     * Get the MS-DOS modified time of a files zip entry.
+     *
+     * @param file  The file.
+     */
+    private int getDosTime(File file) {
+        return _reproducible
+                ? PackZipWriter.toDosTime(_fixedTime, UTC)
+                : PackZipWriter.toDosTime(file.lastModified());
+    }
+
+    /**
+     * Sort files by the name of their zip entry.
+     *
+     * @param packFiles  The resource pack files.
+     * @param files      The files to sort.
+     */
+    private void sortByEntryName(final ResourcePackFiles packFiles, List<File> files) {
+
+        final Map<File, String> names = new HashMap<>(files.size() * 2);
+
+        for (File file : files) {
+            names.put(file, getEntryName(packFiles, file));
+        }
+
+        Collections.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File o1, File o2) {
+                int compare = names.get(o1).compareTo(names.get(o2));
+                return compare != 0 ? compare : o1.compareTo(o2);
+            }
+        });
+    }
+
+    /**
+     * Hash the contents of the files to pack in parallel.
+     *
+     * @param manifest  The resource pack manifest used to look up file hashes. May be null.
+     * @param files     The files to hash.
+     * @param threads   The number of threads to hash with.
+     *
+     * @return  The hashes in the same order as the files. Files that could
+     * not be read have a null hash.
+     */
+    private List<byte[]> getHashes(@Nullable final ScanManifest manifest,
+                                   List<File> files, int threads) {
+
+        List<Callable<byte[]>> tasks = new ArrayList<>(files.size());
+
+        for (final File file : files) {
+            tasks.add(new Callable<byte[]>() {
+                @Override
+                public byte[] call() throws Exception {
+                    return manifest != null
+                            ? manifest.getHash(file)
+                            : Utils.getFileHash(file);
+                }
+            });
+        }
+
+        return Utils.invokeAll(tasks, threads);
+    }
+
+    /**
+     * Write slimmed copies of the sound files to pack to temporary files in parallel.
+     *
+     * @param files    The files to pack.
+     * @param threads  The number of threads to use.
+     *
+     * @return  The sound files that were made smaller mapped to their slimmed copy.
+     */
+    private Map<File, File> slimSounds(List<File> files, int threads) {
+
+        final Set<String> comments = _slimComments;
+        final List<File> sounds = new ArrayList<>(files.size());
+        long totalBytes = 0;
+
+        for (File file : files) {
+            if ("ogg".equals(Utils.getExtension(file.getName()))) {
+                sounds.add(file);
+                totalBytes += file.length();
+            }
+        }
+
+        if (sounds.isEmpty())
+            return Collections.emptyMap();
+
+        final Progress progress = new Progress("Slimming sounds", sounds.size(), totalBytes);
+        List<Callable<File>> tasks = new ArrayList<>(sounds.size());
+
+        for (final File sound : sounds) {
+            tasks.add(new Callable<File>() {
+                @Override
+                public File call() throws Exception {
+
+                    File temp = File.createTempFile("resourcepacker", ".ogg");
+                    boolean isSlimmed = false;
+
+                    try {
+                        isSlimmed = OggSlimmer.slim(sound, temp, comments) &&
+                                temp.length() < sound.length();
+                    }
+                    catch (IOException e) {
+                        Log.verbose("Not slimmed, " + e.getMessage() + ": " + sound);
+                    }
+                    finally {
+                        if (!isSlimmed)
+                            temp.delete();
+
+                        progress.add(sound.length());
+                    }
+
+                    return isSlimmed ? temp : null;
+                }
+            });
+        }
+
+        List<File> results = Utils.invokeAll(tasks, threads);
+        progress.finish();
+
+        Map<File, File> slimmed = new HashMap<>(sounds.size() * 2);
+        long saved = 0;
+
+        for (int i = 0; i < sounds.size(); i++) {
+
+            File temp = results.get(i);
+            if (temp == null)
+                continue;
+
+            saved += sounds.get(i).length() - temp.length();
+            slimmed.put(sounds.get(i), temp);
+        }
+
+        Log.info("Slimmed " + slimmed.size() + " of " + sounds.size() + " sound files, saved " +
+                Progress.formatBytes(saved));
+
+        return slimmed;
+    }
+
+    /**
+     * Print the files that were stored as references to other files.
+     *
+     * @param duplicates  The duplicate entry names mapped to the record of the original.
+     */
+    private void printDuplicates(Map<ZipRecord, List<String>> duplicates) {
+
+        if (duplicates.isEmpty()) {
+            Log.info("No duplicate files found.");
+            return;
+        }
+
+        int count = 0;
+        long saved = 0;
+
+        for (Map.Entry<ZipRecord, List<String>> entry : duplicates.entrySet()) {
+
+            ZipRecord original = entry.getKey();
+            List<String> names = entry.getValue();
+
+            Log.info("Duplicates of " + original.getName() + ':');
+
+            for (String name : names) {
+                Log.info("    " + name);
+            }
+
+            count += names.size();
+            saved += original.getCompressedSize() * names.size();
+        }
+
+        Log.info("Deduplicated " + count + " files in " + duplicates.size() +
+                " groups, saved " + saved + " bytes.");
+    }
+
+    /**
+     * Get a fingerprint of the names and contents of the files to pack
+     * and the settings used to pack them.
+     *
+     * @param packFiles  The resource pack files.
+     * @param manifest   The resource pack manifest used to look up file hashes.
+     * @param files      The files to pack.
+     *
+     * @return  The fingerprint or null if a file could not be read.
+     */
+    @Nullable
+    private String getFingerprint(ResourcePackFiles packFiles, ScanManifest manifest,
+                                  Collection<File> files) {
+
+        MessageDigest digest = Utils.createDigest("SHA-1");
+
+        digest.update((byte) (_deduplicate ? 1 : 0));
+
+        digest.update((byte) (_reproducible ? 1 : 0));
+        if (_reproducible)
+            digest.update(String.valueOf(_fixedTime).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+
+        digest.update(_policy.getRules().getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+
+        digest.update((byte) (_slimComments != null ? 1 : 0));
+
+        if (_slimComments != null) {
+            for (String comment : _slimComments) {
+                digest.update(comment.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+        }
+        digest.update((byte) 0);
+
+        for (File file : files) {
+
+            byte[] hash = manifest.getHash(file);
+            if (hash == null)
+                return null;
+
+            String path = getEntryName(packFiles, file);
+
+            digest.update(path.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(hash);
+        }
+
+        return Utils.toHex(digest.digest());
+    }
+
+    /*
+     * A file to write to the zip file.
+     */
+    private static class ZipEntryInfo {
+
+        final String name;
+        final File file;
+        File source;
+        ZipEntryInfo original;
+        ZipRecord record;
+
+        ZipEntryInfo(String name, File file) {
+            this.name = name;
+            this.file = file;
+            this.source = file;
+        }
+    }
 }
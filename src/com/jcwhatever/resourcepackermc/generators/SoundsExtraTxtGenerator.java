@@ -25,7 +25,6 @@
 package com.jcwhatever.resourcepackermc.generators;
 
 import com.jcwhatever.resourcepackermc.ResourcePackFiles;
-import com.jcwhatever.resourcepackermc.sounds.MinecraftSounds;
 import com.jcwhatever.resourcepackermc.sounds.OggSound;
 
 import java.io.File;
@@ -45,6 +44,6 @@ public class SoundsExtraTxtGenerator extends SoundsTxtGenerator {
 
     @Override
     protected Collection<OggSound> getSounds(ResourcePackFiles files) {
-        return MinecraftSounds.removeMinecraft(files.getSounds());
+        return files.getExtraSounds();
     }
 }
@@ -25,10 +25,11 @@
 package com.jcwhatever.resourcepackermc.generators;
 
 import com.jcwhatever.resourcepackermc.ResourcePackFiles;
+import com.jcwhatever.resourcepackermc.log.Log;
+import com.jcwhatever.resourcepackermc.log.Progress;
 import com.jcwhatever.resourcepackermc.sounds.JSONSound;
 import com.jcwhatever.resourcepackermc.sounds.JSONSoundEvent;
 import com.jcwhatever.resourcepackermc.sounds.JSONSounds;
-import com.jcwhatever.resourcepackermc.sounds.MinecraftSounds;
 import com.jcwhatever.resourcepackermc.sounds.OggSound;
 
 import org.apache.sling.commons.json.JSONException;
@@ -43,6 +44,11 @@ import javax.annotation.Nullable;
  */
 public class SoundsJSONGenerator implements IGenerator {
 
+    /**
+     * The default maximum decoded size in bytes of a sound that is not streamed.
+     */
+    public static final long DEFAULT_STREAM_BUDGET = 512 * 1024;
+
     /**
      * Get the sounds.json file object.
      */
@@ -56,6 +62,28 @@ public class SoundsJSONGenerator implements IGenerator {
         return new File(soundsJsonPath);
     }
 
+    private long _streamBudget = DEFAULT_STREAM_BUDGET;
+
+    /**
+     * Get the maximum decoded size in bytes of a sound that is not streamed.
+     */
+    public long getStreamBudget() {
+        return _streamBudget;
+    }
+
+    /**
+     * Set the maximum decoded size in bytes of a sound that is not streamed.
+     *
+     * <p>Minecraft decodes sounds that are not streamed into memory in full.
+     * Sounds whose estimated decoded size is larger than the budget are
+     * marked to be streamed.</p>
+     *
+     * @param budget  The size in bytes.
+     */
+    public void setStreamBudget(long budget) {
+        _streamBudget = budget;
+    }
+
     @Override
     public void generateFile(ResourcePackFiles packFiles, File root) {
         generate(packFiles, getFile(root));
@@ -68,7 +96,7 @@ public class SoundsJSONGenerator implements IGenerator {
             JSONSounds sounds = getJsonSounds(packFiles, file);
             sounds.write(file);
         } catch (IOException | JSONException e) {
-            e.printStackTrace();
+            Log.error("Failed to generate sounds.json file: " + file, e);
         }
     }
 
@@ -78,21 +106,29 @@ public class SoundsJSONGenerator implements IGenerator {
             JSONSounds sounds = getJsonSounds(packFiles, null);
             sounds.write(sb);
         } catch (IOException | JSONException e) {
-            e.printStackTrace();
+            Log.error("Failed to generate sounds.json", e);
         }
     }
 
     private JSONSounds getJsonSounds(ResourcePackFiles packFiles, @Nullable File file) throws JSONException {
 
-        Collection<OggSound> oggSounds = MinecraftSounds.removeMinecraft(packFiles.getSounds());
+        Collection<OggSound> oggSounds = packFiles.getExtraSounds();
 
         JSONSounds sounds = new JSONSounds(file);
+        int streamed = 0;
+        long decoded = 0;
 
         // add sounds
         for (OggSound ogg : oggSounds) {
 
             String name = ogg.getSoundPath();
-            boolean stream = ogg.getTotalSeconds() > 3;
+            long decodedSize = ogg.getDecodedSize();
+            boolean stream = decodedSize > _streamBudget;
+
+            if (stream)
+                streamed++;
+            else
+                decoded += decodedSize;
 
             JSONSound sound = new JSONSound(name);
             sound.setStream(stream);
@@ -119,6 +155,9 @@ public class SoundsJSONGenerator implements IGenerator {
             sounds.putSoundEvent(event.getName(), event);
         }
 
+        Log.info("Sounds: " + streamed + " streamed, " + (oggSounds.size() - streamed) +
+                " loaded into memory using " + Progress.formatBytes(decoded) + " when decoded");
+
         return sounds;
     }
 }
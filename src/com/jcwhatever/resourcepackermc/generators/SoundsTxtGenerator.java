@@ -27,6 +27,7 @@ package com.jcwhatever.resourcepackermc.generators;
 import com.jcwhatever.resourcepackermc.ResourcePackFiles;
 import com.jcwhatever.resourcepackermc.Utils;
 import com.jcwhatever.resourcepackermc.Utils.ITextWriteHandler;
+import com.jcwhatever.resourcepackermc.log.Log;
 import com.jcwhatever.resourcepackermc.sounds.OggSound;
 
 import java.io.File;
@@ -68,7 +69,7 @@ public class SoundsTxtGenerator implements IGenerator {
         try {
             write(packFiles, sb);
         } catch (IOException e) {
-            e.printStackTrace();
+            Log.error("Failed to generate sounds text", e);
         }
     }
 
@@ -24,6 +24,8 @@
 
 package com.jcwhatever.resourcepackermc.gui;
 
+import com.jcwhatever.resourcepackermc.IPackChangeListener;
+import com.jcwhatever.resourcepackermc.PackChanges;
 import com.jcwhatever.resourcepackermc.ResourcePackFiles;
 import com.jcwhatever.resourcepackermc.Utils;
 import com.jcwhatever.resourcepackermc.generators.NucleusGenerator;
@@ -33,7 +35,9 @@ import com.jcwhatever.resourcepackermc.generators.SoundsJSONGenerator;
 import com.jcwhatever.resourcepackermc.generators.SoundsTxtGenerator;
 import com.jcwhatever.resourcepackermc.gui.editor.EditorController;
 import com.jcwhatever.resourcepackermc.gui.editor.EditorSettings;
+import com.jcwhatever.resourcepackermc.log.Log;
 
+import javafx.application.Platform;
 import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
 import javafx.event.ActionEvent;
@@ -57,6 +61,7 @@ import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.ResourceBundle;
+import java.util.concurrent.Executor;
 
 /**
  * The GUI controller.
@@ -162,7 +167,16 @@ public class Controller implements Initializable {
 
     @FXML
     protected void onRefreshFiles(ActionEvent event) {
-        loadFolder(_folder);
+
+        if (_files == null)
+            return;
+
+        // file tree is updated by the change listener
+        _files.refresh();
+
+        for (EditorController controller : _editorControllers) {
+            controller.loadFile();
+        }
     }
 
     @FXML
@@ -170,7 +184,7 @@ public class Controller implements Initializable {
         try {
             Desktop.getDesktop().open(_folder);
         } catch (IOException e) {
-            e.printStackTrace();
+            Log.error("Failed to open folder: " + _folder, e);
         }
     }
 
@@ -206,7 +220,7 @@ public class Controller implements Initializable {
         try {
             Desktop.getDesktop().open(folder);
         } catch (IOException e) {
-            e.printStackTrace();
+            Log.error("Failed to open folder: " + folder, e);
         }
     }
 
@@ -221,7 +235,7 @@ public class Controller implements Initializable {
         try {
             Desktop.getDesktop().open(item.getFile());
         } catch (IOException e) {
-            e.printStackTrace();
+            Log.error("Failed to open file: " + item.getFile(), e);
         }
     }
 
@@ -276,12 +290,30 @@ public class Controller implements Initializable {
     }
 
     private void loadFolder(File folder) {
+
+        if (_files != null)
+            _files.stopWatching();
+
         _files = new ResourcePackFiles(folder);
 
         labelResourceFolder.setText(_folder.getAbsolutePath());
 
         fileTree.refresh();
 
+        _files.addListener(new IPackChangeListener() {
+            @Override
+            public void onChanged(ResourcePackFiles files, PackChanges changes) {
+                fileTree.update(changes);
+            }
+        });
+
+        _files.startWatching(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                Platform.runLater(command);
+            }
+        });
+
         // Enable buttons
         btnRefreshFiles.setDisable(false);
         btnOpenResourceFolder.setDisable(false);
@@ -298,7 +330,7 @@ public class Controller implements Initializable {
         textAreaResourceSoundsYml.setDisable(false);
 
         for (EditorController controller : _editorControllers) {
-            controller.setRoot(folder);
+            controller.setFiles(_files);
             controller.loadFile();
         }
     }
@@ -24,8 +24,12 @@
 
 package com.jcwhatever.resourcepackermc.gui;
 
+import com.jcwhatever.resourcepackermc.PackChanges;
 import com.jcwhatever.resourcepackermc.ResourcePackFiles;
 import com.jcwhatever.resourcepackermc.gui.img.GuiImages;
+import com.jcwhatever.resourcepackermc.log.Log;
+import com.jcwhatever.resourcepackermc.sounds.OggSound;
+import com.jcwhatever.resourcepackermc.sounds.SoundTagger;
 
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
@@ -35,6 +39,7 @@ import javafx.scene.control.ButtonType;
 import javafx.scene.control.ContextMenu;
 import javafx.scene.control.MenuItem;
 import javafx.scene.control.SeparatorMenuItem;
+import javafx.scene.control.TreeItem;
 import javafx.scene.control.TreeView;
 import javafx.scene.image.ImageView;
 import javafx.stage.WindowEvent;
@@ -45,7 +50,10 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import javax.annotation.Nullable;
 
@@ -55,6 +63,7 @@ import javax.annotation.Nullable;
 public class FileTree extends TreeView<String> {
 
     private Controller _controller;
+    private Map<File, FileTreeItem> _items = new HashMap<>(100);
 
     /**
      * Constructor.
@@ -70,23 +79,45 @@ public class FileTree extends TreeView<String> {
 
     /**
      * Refresh the file view.
+     *
+     * <p>Rebuilds the view from the path index of the current resource pack
+     * files. Does not access the file system.</p>
      */
     public void refresh() {
 
+        _items.clear();
+
         ResourcePackFiles files = _controller._files;
         if (files == null) {
             setRoot(null);
             return;
         }
 
-        files.refresh();
-
-        FileTreeItem item = getFileNode(files.getRootFolder(), null);
+        FileTreeItem item = getFileNode(files, files.getRootFolder(), "", true, null);
         item.setExpanded(true);
 
         setRoot(item);
     }
 
+    /**
+     * Update the file view with changes to the resource pack files.
+     *
+     * @param changes  The resource pack file changes.
+     */
+    public void update(PackChanges changes) {
+
+        if (getRoot() == null)
+            return;
+
+        for (File file : changes.getRemovedFiles()) {
+            removeItem(_items.get(file));
+        }
+
+        for (File file : changes.getAddedFiles()) {
+            getOrCreateItem(file, false);
+        }
+    }
+
     @Nullable
     private FileTreeItem getSelectedItem() {
         return (FileTreeItem)getSelectionModel().getSelectedItem();
@@ -100,6 +131,8 @@ public class FileTree extends TreeView<String> {
 
         final MenuItem exclude = new MenuItem("Exclude", new ImageView(GuiImages.STOP));
 
+        final MenuItem tags = new MenuItem("Edit Tags...", new ImageView(GuiImages.AUDIO));
+
         final MenuItem delete = new MenuItem("Delete", new ImageView(GuiImages.DELETE));
 
         SeparatorMenuItem separator1 = new SeparatorMenuItem();
@@ -110,6 +143,7 @@ public class FileTree extends TreeView<String> {
                 separator1,
                 include,
                 exclude,
+                tags,
                 separator2,
                 delete);
 
@@ -125,7 +159,7 @@ public class FileTree extends TreeView<String> {
                 try {
                     Desktop.getDesktop().open(selected.getFile());
                 } catch (IOException e) {
-                    e.printStackTrace();
+                    Log.error("Failed to open file: " + selected.getFile(), e);
                 }
             }
         });
@@ -153,6 +187,40 @@ public class FileTree extends TreeView<String> {
             }
         });
 
+        tags.setOnAction(new EventHandler<ActionEvent>() {
+            @Override
+            public void handle(ActionEvent event) {
+                FileTreeItem selected = getSelectedItem();
+                if (selected == null)
+                    return;
+
+                final ResourcePackFiles files = _controller._files;
+                List<OggSound> sounds = getSounds(selected);
+                if (files == null || sounds.isEmpty())
+                    return;
+
+                Optional<Map<String, String>> result = new TagDialog(sounds).showAndWait();
+                if (!result.isPresent() || result.get().isEmpty())
+                    return;
+
+                final Map<File, Map<String, String>> changes = new LinkedHashMap<>(sounds.size() * 2);
+                for (OggSound sound : sounds) {
+                    changes.put(sound.getFile(), result.get());
+                }
+
+                // the resource pack files are updated by the folder watcher
+                Thread thread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        SoundTagger.tag(changes, files.getThreadCount());
+                    }
+                }, "Tagger");
+
+                thread.setDaemon(true);
+                thread.start();
+            }
+        });
+
         delete.setOnAction(new EventHandler<ActionEvent>() {
             @Override
             public void handle(ActionEvent event) {
@@ -170,14 +238,9 @@ public class FileTree extends TreeView<String> {
                 if (pressed.get() != ButtonType.OK)
                     return;
 
-                selected.getFile().delete();
-
-                ResourcePackFiles files = _controller._files;
-                if (files != null) {
-
-                    files.refresh();
-                    selected.getParent().getChildren().remove(selected);
-                }
+                // the resource pack files are updated by the folder watcher
+                if (selected.getFile().delete())
+                    removeItem(selected);
             }
         });
 
@@ -190,6 +253,7 @@ public class FileTree extends TreeView<String> {
                     include.setDisable(true);
                     include.setGraphic(null);
                     exclude.setDisable(true);
+                    tags.setDisable(true);
                     delete.setDisable(true);
                     return;
                 }
@@ -198,6 +262,7 @@ public class FileTree extends TreeView<String> {
                 include.setDisable(selected.isIncluded() || selected.isDirectory());
                 include.setGraphic(new ImageView(selected.getFileImage()));
                 exclude.setDisable(!selected.isIncluded() || selected.isDirectory());
+                tags.setDisable(getSounds(selected).isEmpty());
                 delete.setDisable(false);
             }
         });
@@ -205,52 +270,140 @@ public class FileTree extends TreeView<String> {
         return menu;
     }
 
-    private FileTreeItem getFileNode(File file, @Nullable FileTreeItem parent) {
+    /*
+     * Get the sounds of a sound file item or of all sound files in a folder item.
+     */
+    private List<OggSound> getSounds(FileTreeItem item) {
 
-        FileTreeItem root = new FileTreeItem(_controller, file);
-        if (parent != null)
-            parent.getChildren().add(root);
+        ResourcePackFiles files = _controller._files;
+        if (files == null)
+            return Collections.emptyList();
 
-        if (file.isDirectory()) {
+        String folder = item.getFile().getPath() + File.separatorChar;
+        List<OggSound> sounds = new ArrayList<>(10);
 
-            File[] files = file.listFiles();
-            if (files != null) {
+        for (OggSound sound : files.getSounds()) {
 
-                List<File> fileList = new ArrayList<>(files.length);
-                Collections.addAll(fileList, files);
+            File file = sound.getFile();
 
-                Collections.sort(fileList, new Comparator<File>() {
-                    @Override
-                    public int compare(File o1, File o2) {
+            if (item.isDirectory()
+                    ? file.getPath().startsWith(folder)
+                    : file.equals(item.getFile())) {
+                sounds.add(sound);
+            }
+        }
 
-                        if (!o1.isDirectory() || !o2.isDirectory()) {
+        return sounds;
+    }
 
-                            if (o1.isDirectory())
-                                return -1;
+    private FileTreeItem getFileNode(final ResourcePackFiles files, File file, String path,
+                                     boolean isDirectory, @Nullable FileTreeItem parent) {
 
-                            if (o2.isDirectory())
-                                return 1;
-                        }
+        FileTreeItem root = new FileTreeItem(_controller, file, isDirectory);
+        if (parent != null)
+            parent.getChildren().add(root);
 
-                        return o1.getName().compareTo(o2.getName());
-                    }
-                });
+        _items.put(file, root);
 
-                for (File childFile : fileList) {
+        if (!isDirectory)
+            return root;
 
-                    if (_controller._files.getFiles().contains(childFile) || childFile.isDirectory()) {
-                        FileTreeItem childItem = getFileNode(childFile, root);
+        // the index only contains folders that have files
+        List<String> children = files.getChildren(path);
+        List<String> childPaths = new ArrayList<>(children.size());
 
-                        // remove empty directory
-                        if (childFile.isDirectory() && childItem.getChildren().size() == 0) {
-                            root.getChildren().remove(childItem);
-                        }
-                    }
-                }
+        for (String name : children) {
+            childPaths.add(path.isEmpty() ? name : path + '/' + name);
+        }
+
+        Collections.sort(childPaths, new Comparator<String>() {
+            @Override
+            public int compare(String o1, String o2) {
+                return compareFiles(files.isDirectory(o1), getName(o1),
+                        files.isDirectory(o2), getName(o2));
             }
+        });
+
+        for (String childPath : childPaths) {
+            getFileNode(files, new File(file, getName(childPath)), childPath,
+                    files.isDirectory(childPath), root);
         }
 
         return root;
     }
 
+    /*
+     * Get the item for a file, creating it and any missing parent directory
+     * items if needed.
+     */
+    @Nullable
+    private FileTreeItem getOrCreateItem(File file, boolean isDirectory) {
+
+        FileTreeItem item = _items.get(file);
+        if (item != null)
+            return item;
+
+        File parentFile = file.getParentFile();
+        if (parentFile == null)
+            return null;
+
+        FileTreeItem parent = getOrCreateItem(parentFile, true);
+        if (parent == null)
+            return null;
+
+        item = new FileTreeItem(_controller, file, isDirectory);
+        _items.put(file, item);
+
+        // insert into sorted position
+        List<TreeItem<String>> children = parent.getChildren();
+        int index = 0;
+
+        while (index < children.size()) {
+            FileTreeItem child = (FileTreeItem) children.get(index);
+
+            if (compareFiles(child.isDirectory(), child.getValue(), item.isDirectory(), item.getValue()) > 0)
+                break;
+
+            index++;
+        }
+
+        children.add(index, item);
+
+        return item;
+    }
+
+    /*
+     * Remove an item and any parent directory items left empty.
+     */
+    private void removeItem(@Nullable TreeItem<String> item) {
+
+        while (item instanceof FileTreeItem && item != getRoot()) {
+
+            TreeItem<String> parent = item.getParent();
+
+            _items.remove(((FileTreeItem) item).getFile());
+
+            if (parent == null)
+                return;
+
+            parent.getChildren().remove(item);
+
+            if (!parent.getChildren().isEmpty())
+                return;
+
+            item = parent;
+        }
+    }
+
+    private static String getName(String path) {
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+
+    private static int compareFiles(boolean isDir1, String name1, boolean isDir2, String name2) {
+
+        if (isDir1 != isDir2)
+            return isDir1 ? -1 : 1;
+
+        return name1.compareTo(name2);
+    }
 }
@@ -51,11 +51,21 @@ public class FileTreeItem extends TreeItem<String> {
      * @param file  The represented file.
      */
     public FileTreeItem(Controller controller, File file) {
+        this(controller, file, file.isDirectory());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param file         The represented file.
+     * @param isDirectory  True if the file is a directory.
+     */
+    public FileTreeItem(Controller controller, File file, boolean isDirectory) {
         super(file.getName());
 
         _controller = controller;
         _file = file;
-        _isDirectory = file.isDirectory();
+        _isDirectory = isDirectory;
 
         if (_isDirectory) {
             EventType<TreeModificationEvent<String>> type = TreeItem.branchExpandedEvent();
@@ -0,0 +1,140 @@
+/*
+ * This file is part of ResourcePackerMC for Bukkit, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) JCThePants (www.jcwhatever.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.jcwhatever.resourcepackermc.gui;
+
+import com.jcwhatever.resourcepackermc.sounds.OggSound;
+
+import javafx.scene.control.ButtonBar.ButtonData;
+import javafx.scene.control.ButtonType;
+import javafx.scene.control.Dialog;
+import javafx.scene.control.Label;
+import javafx.scene.control.TextField;
+import javafx.scene.layout.GridPane;
+import javafx.util.Callback;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dialog used to edit the comments of one or more sound files.
+ *
+ * <p>The result is the changed comments keyed by comment name. An empty
+ * value removes the comment.</p>
+ */
+public class TagDialog extends Dialog<Map<String, String>> {
+
+    private static final String[] NAMES = new String[] {
+            "TITLE", "ARTIST", "ALBUM", "GENRE", "DESCRIPTION", "COPYRIGHT", "LICENSE", "CONTACT"
+    };
+
+    private final Map<String, TextField> _fields = new LinkedHashMap<>(NAMES.length * 2);
+    private final Map<String, String> _initial = new LinkedHashMap<>(NAMES.length * 2);
+
+    /**
+     * Constructor.
+     *
+     * <p>If there is one sound, the fields show its current comments. Otherwise
+     * the fields are empty and only fields that are filled in are changed.</p>
+     *
+     * @param sounds  The sounds to edit.
+     */
+    public TagDialog(List<OggSound> sounds) {
+
+        setTitle(sounds.size() == 1
+                ? "Edit Tags: " + sounds.get(0).getFile().getName()
+                : "Edit Tags: " + sounds.size() + " sound files");
+
+        GridPane grid = new GridPane();
+        grid.setHgap(10);
+        grid.setVgap(5);
+
+        OggSound sound = sounds.size() == 1 ? sounds.get(0) : null;
+
+        for (int i = 0; i < NAMES.length; i++) {
+
+            String name = NAMES[i];
+            String value = sound != null ? getComment(sound, name) : null;
+
+            TextField field = new TextField(value != null ? value : "");
+            field.setPrefColumnCount(30);
+
+            _fields.put(name, field);
+            _initial.put(name, field.getText());
+
+            grid.add(new Label(name.charAt(0) + name.substring(1).toLowerCase()), 0, i);
+            grid.add(field, 1, i);
+        }
+
+        getDialogPane().setContent(grid);
+
+        final ButtonType apply = new ButtonType("Apply", ButtonData.OK_DONE);
+        getDialogPane().getButtonTypes().addAll(apply, ButtonType.CANCEL);
+
+        setResultConverter(new Callback<ButtonType, Map<String, String>>() {
+            @Override
+            public Map<String, String> call(ButtonType buttonType) {
+
+                if (buttonType != apply)
+                    return null;
+
+                Map<String, String> result = new LinkedHashMap<>(NAMES.length * 2);
+
+                for (Map.Entry<String, TextField> entry : _fields.entrySet()) {
+
+                    String text = entry.getValue().getText().trim();
+                    if (!text.equals(_initial.get(entry.getKey())))
+                        result.put(entry.getKey(), text);
+                }
+
+                return result;
+            }
+        });
+    }
+
+    private static String getComment(OggSound sound, String name) {
+
+        switch (name) {
+            case "TITLE":
+                return sound.getTitle();
+            case "ARTIST":
+                return sound.getArtist();
+            case "ALBUM":
+                return sound.getAlbum();
+            case "GENRE":
+                return sound.getGenre();
+            case "DESCRIPTION":
+                return sound.getDescription();
+            case "COPYRIGHT":
+                return sound.getCopyright();
+            case "LICENSE":
+                return sound.getLicense();
+            case "CONTACT":
+                return sound.getContact();
+            default:
+                return null;
+        }
+    }
+}
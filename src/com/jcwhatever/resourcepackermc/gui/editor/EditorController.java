@@ -36,7 +36,7 @@ public class EditorController implements IEditorController {
 
     private final EditorSettings _settings;
     private final String _filename;
-    private File _root;
+    private ResourcePackFiles _files;
     private String _currentText = "";
 
     public EditorController(EditorSettings settings, String filename) {
@@ -44,8 +44,8 @@ public class EditorController implements IEditorController {
         _filename = filename;
     }
 
-    public void setRoot(File root) {
-        _root = root;
+    public void setFiles(ResourcePackFiles files) {
+        _files = files;
     }
 
     @Override
@@ -56,10 +56,17 @@ public class EditorController implements IEditorController {
     @Override
     public void loadFile() {
 
-        if (_root == null)
+        if (_files == null)
             return;
 
-        File file = Utils.findFile(_filename, _root);
+        File file = _files.findFile(_filename);
+
+        // generated files that are not packed are in the root folder
+        if (file == null) {
+            File rootFile = new File(_files.getRootFolder(), _filename);
+            if (rootFile.isFile())
+                file = rootFile;
+        }
 
         if (file == null) {
             _settings.getReloadBtn().setDisable(true);
@@ -98,7 +105,7 @@ public class EditorController implements IEditorController {
     @Override
     public void saveFile(ResourcePackFiles files) {
 
-        _settings.getGenerator().generateFile(files, _root);
+        _settings.getGenerator().generateFile(files, files.getRootFolder());
 
         _currentText = _settings.getTextArea().getText();
 
@@ -0,0 +1,322 @@
+/*
+ * This file is part of ResourcePackerMC for Bukkit, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) JCThePants (www.jcwhatever.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.jcwhatever.resourcepackermc.log;
+
+import java.io.PrintStream;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+/**
+ * Leveled console output.
+ *
+ * <p>Messages are queued and written by a background thread so that callers
+ * are never blocked by a slow console. A single progress line can be shown,
+ * which is overwritten by the next progress update and cleared before other
+ * messages are written.</p>
+ */
+public class Log {
+
+    /**
+     * Output levels.
+     */
+    public enum Level {
+        /**
+         * Only errors and warnings.
+         */
+        QUIET,
+        /**
+         * Errors, warnings, information and progress.
+         */
+        NORMAL,
+        /**
+         * Everything, including per-file messages and error stack traces.
+         */
+        VERBOSE
+    }
+
+    private static final long FLUSH_TIMEOUT = 5000;
+
+    private static final BlockingQueue<Message> _queue = new LinkedBlockingQueue<>();
+    private static final boolean _isConsole = System.console() != null;
+    private static volatile Level _level = Level.NORMAL;
+    private static volatile PrintStream _out = System.out;
+    private static Thread _thread;
+
+    private Log() {}
+
+    /**
+     * Get the output level.
+     */
+    public static Level getLevel() {
+        return _level;
+    }
+
+    /**
+     * Set the output level.
+     *
+     * @param level  The level.
+     */
+    public static void setLevel(Level level) {
+        _level = level;
+    }
+
+    /**
+     * Set the stream that information, verbose and progress messages are
+     * written to.
+     *
+     * <p>Defaults to {@link System#out}. Warnings and errors are always
+     * written to {@link System#err}.</p>
+     *
+     * @param out  The output stream.
+     */
+    public static void setOutput(PrintStream out) {
+        _out = out;
+    }
+
+    /**
+     * Determine if verbose messages are written.
+     */
+    public static boolean isVerbose() {
+        return _level == Level.VERBOSE;
+    }
+
+    /**
+     * Determine if output is written to an interactive console.
+     *
+     * <p>Progress lines are overwritten in place on a console and written
+     * as separate lines otherwise.</p>
+     */
+    public static boolean isConsole() {
+        return _isConsole;
+    }
+
+    /**
+     * Write an information message.
+     *
+     * @param message  The message.
+     */
+    public static void info(String message) {
+        if (_level != Level.QUIET)
+            post(new Message(Message.OUT, message, null));
+    }
+
+    /**
+     * Write a message that is only shown in verbose mode.
+     *
+     * @param message  The message.
+     */
+    public static void verbose(String message) {
+        if (_level == Level.VERBOSE)
+            post(new Message(Message.OUT, message, null));
+    }
+
+    /**
+     * Write a warning message.
+     *
+     * @param message  The message.
+     */
+    public static void warning(String message) {
+        post(new Message(Message.ERR, "WARNING: " + message, null));
+    }
+
+    /**
+     * Write an error message.
+     *
+     * @param message  The message.
+     */
+    public static void error(String message) {
+        error(message, null);
+    }
+
+    /**
+     * Write an error message.
+     *
+     * <p>The stack trace of the exception is only written in verbose mode.</p>
+     *
+     * @param message    The message.
+     * @param throwable  The cause of the error.
+     */
+    public static void error(String message, @Nullable Throwable throwable) {
+
+        if (throwable != null && !isVerbose()) {
+            message += ": " + throwable;
+            throwable = null;
+        }
+
+        post(new Message(Message.ERR, "ERROR: " + message, throwable));
+    }
+
+    /**
+     * Show a progress line.
+     *
+     * @param line  The progress line.
+     */
+    public static void progress(String line) {
+        if (_level != Level.QUIET)
+            post(new Message(Message.PROGRESS, line, null));
+    }
+
+    /**
+     * Wait until queued messages are written.
+     *
+     * <p>Waits at most a few seconds.</p>
+     */
+    public static void flush() {
+
+        CountDownLatch latch = new CountDownLatch(1);
+        post(new Message(latch));
+
+        try {
+            latch.await(FLUSH_TIMEOUT, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static synchronized void post(Message message) {
+
+        if (_thread == null) {
+            _thread = new Thread(new Writer(), "Log");
+            _thread.setDaemon(true);
+            _thread.start();
+
+            Runtime.getRuntime().addShutdownHook(new Thread() {
+                @Override
+                public void run() {
+                    flush();
+                }
+            });
+        }
+
+        _queue.add(message);
+    }
+
+    /*
+     * Writes queued messages.
+     */
+    private static class Writer implements Runnable {
+
+        int _progressLength;
+
+        @Override
+        public void run() {
+
+            while (true) {
+
+                Message message;
+                try {
+                    message = _queue.take();
+                } catch (InterruptedException e) {
+                    return;
+                }
+
+                switch (message._type) {
+                    case Message.OUT:
+                        clearProgress();
+                        _out.println(message._text);
+                        break;
+
+                    case Message.ERR:
+                        clearProgress();
+                        _out.flush();
+                        System.err.println(message._text);
+                        if (message._throwable != null)
+                            message._throwable.printStackTrace(System.err);
+                        System.err.flush();
+                        break;
+
+                    case Message.PROGRESS:
+                        writeProgress(message._text);
+                        break;
+
+                    case Message.FLUSH:
+                        _out.flush();
+                        System.err.flush();
+                        message._latch.countDown();
+                        break;
+                }
+            }
+        }
+
+        void writeProgress(String line) {
+
+            if (!_isConsole) {
+                _out.println(line);
+                return;
+            }
+
+            PrintStream out = _out;
+            out.print('\r');
+            out.print(line);
+
+            // blank out the remainder of a longer previous line
+            for (int i = line.length(); i < _progressLength; i++) {
+                out.print(' ');
+            }
+
+            out.flush();
+            _progressLength = line.length();
+        }
+
+        void clearProgress() {
+
+            if (_progressLength == 0)
+                return;
+
+            _out.println();
+            _progressLength = 0;
+        }
+    }
+
+    private static class Message {
+
+        static final int OUT = 0;
+        static final int ERR = 1;
+        static final int PROGRESS = 2;
+        static final int FLUSH = 3;
+
+        final int _type;
+        final String _text;
+        final Throwable _throwable;
+        final CountDownLatch _latch;
+
+        Message(int type, String text, @Nullable Throwable throwable) {
+            _type = type;
+            _text = text;
+            _throwable = throwable;
+            _latch = null;
+        }
+
+        Message(CountDownLatch latch) {
+            _type = FLUSH;
+            _text = null;
+            _throwable = null;
+            _latch = latch;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * This file is part of ResourcePackerMC for Bukkit, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) JCThePants (www.jcwhatever.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.jcwhatever.resourcepackermc.log;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reports the progress of a task as a throttled {@link Log} progress line.
+ *
+ * <p>Shows the number of files and bytes processed, the rate in files per
+ * second and, if the total is known, the estimated time remaining.</p>
+ *
+ * <p>Thread safe. Files can be reported from several threads.</p>
+ */
+public class Progress {
+
+    private static final long CONSOLE_INTERVAL = 250;
+    private static final long LINE_INTERVAL = 5000;
+
+    private final String _label;
+    private final long _totalFiles;
+    private final long _totalBytes;
+    private final long _interval;
+    private final long _startTime = System.currentTimeMillis();
+
+    private final AtomicLong _files = new AtomicLong();
+    private final AtomicLong _bytes = new AtomicLong();
+    private final AtomicLong _nextReport;
+
+    /**
+     * Constructor.
+     *
+     * <p>For tasks whose total is not known.</p>
+     *
+     * @param label  The label shown at the start of the progress line.
+     */
+    public Progress(String label) {
+        this(label, -1, -1);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param label       The label shown at the start of the progress line.
+     * @param totalFiles  The total number of files or -1 if not known.
+     * @param totalBytes  The total number of bytes or -1 if not known.
+     */
+    public Progress(String label, long totalFiles, long totalBytes) {
+        _label = label;
+        _totalFiles = totalFiles;
+        _totalBytes = totalBytes;
+        _interval = Log.isConsole() ? CONSOLE_INTERVAL : LINE_INTERVAL;
+        _nextReport = new AtomicLong(_startTime + _interval);
+    }
+
+    /**
+     * Report a processed file.
+     *
+     * @param bytes  The size of the file.
+     */
+    public void add(long bytes) {
+
+        _files.incrementAndGet();
+        _bytes.addAndGet(bytes);
+
+        long now = System.currentTimeMillis();
+        long next = _nextReport.get();
+
+        // only the thread that moves the report time forward reports
+        if (now >= next && _nextReport.compareAndSet(next, now + _interval))
+            Log.progress(getLine(now));
+    }
+
+    /**
+     * Get the number of files processed.
+     */
+    public long getFiles() {
+        return _files.get();
+    }
+
+    /**
+     * Get the number of bytes processed.
+     */
+    public long getBytes() {
+        return _bytes.get();
+    }
+
+    /**
+     * Show the final progress line.
+     */
+    public void finish() {
+
+        long elapsed = System.currentTimeMillis() - _startTime;
+
+        Log.info(_label + ": " + _files.get() + " files, " + formatBytes(_bytes.get()) +
+                " in " + formatTime(elapsed));
+    }
+
+    private String getLine(long now) {
+
+        long files = _files.get();
+        long bytes = _bytes.get();
+        long elapsed = Math.max(1, now - _startTime);
+
+        StringBuilder sb = new StringBuilder(80);
+        sb.append(_label);
+        sb.append(": ");
+        sb.append(files);
+
+        if (_totalFiles >= 0) {
+            sb.append('/');
+            sb.append(_totalFiles);
+        }
+
+        sb.append(" files, ");
+        sb.append(formatBytes(bytes));
+
+        if (_totalBytes >= 0) {
+            sb.append('/');
+            sb.append(formatBytes(_totalBytes));
+        }
+
+        sb.append(", ");
+        sb.append(files * 1000 / elapsed);
+        sb.append(" files/s");
+
+        long remaining = getRemaining(files, bytes, elapsed);
+        if (remaining >= 0) {
+            sb.append(", ETA ");
+            sb.append(formatTime(remaining));
+        }
+
+        return sb.toString();
+    }
+
+    /*
+     * Estimate the remaining time in milliseconds. Uses bytes if the
+     * total is known since file sizes vary.
+     */
+    private long getRemaining(long files, long bytes, long elapsed) {
+
+        if (_totalBytes > 0 && bytes > 0)
+            return (long) (elapsed * ((double) (_totalBytes - bytes) / bytes));
+
+        if (_totalFiles > 0 && files > 0)
+            return (long) (elapsed * ((double) (_totalFiles - files) / files));
+
+        return -1;
+    }
+
+    /**
+     * Format a number of bytes using binary units.
+     *
+     * @param bytes  The number of bytes.
+     */
+    public static String formatBytes(long bytes) {
+
+        if (bytes < 1024)
+            return bytes + " B";
+
+        if (bytes < 1024 * 1024)
+            return String.format("%.1f KiB", bytes / 1024.0);
+
+        if (bytes < 1024L * 1024 * 1024)
+            return String.format("%.1f MiB", bytes / (1024.0 * 1024));
+
+        return String.format("%.2f GiB", bytes / (1024.0 * 1024 * 1024));
+    }
+
+    /**
+     * Format a duration.
+     *
+     * @param millis  The duration in milliseconds.
+     */
+    public static String formatTime(long millis) {
+
+        if (millis < 1000)
+            return millis + " ms";
+
+        long seconds = millis / 1000;
+        if (seconds < 60)
+            return String.format("%.1f s", millis / 1000.0);
+
+        return (seconds / 60) + " m " + (seconds % 60) + " s";
+    }
+}
@@ -0,0 +1,306 @@
+/*
+ * This file is part of ResourcePackerMC for Bukkit, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) JCThePants (www.jcwhatever.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.jcwhatever.resourcepackermc.scanner;
+
+import com.jcwhatever.resourcepackermc.Utils;
+import com.jcwhatever.resourcepackermc.log.Log;
+import com.jcwhatever.resourcepackermc.log.Progress;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import javax.annotation.Nullable;
+
+/**
+ * Walks a resource pack folder using a fork/join pool.
+ *
+ * <p>Each sub directory is scanned as a separate task so that large trees
+ * are split across the available threads. File attributes are read once
+ * per directory entry.</p>
+ */
+public class FileScanner {
+
+    private final File _root;
+    private final Set<String> _includeExt;
+    private final int _threads;
+
+    private volatile PackIgnore _ignore;
+
+    /**
+     * Constructor.
+     *
+     * @param root        The resource pack root folder.
+     * @param includeExt  The lower case extensions of files to include.
+     * @param ignore      The rules used to exclude files and folders.
+     * @param threads     The number of threads to scan with.
+     */
+    public FileScanner(File root, Set<String> includeExt, PackIgnore ignore, int threads) {
+        _root = root;
+        _includeExt = includeExt;
+        _ignore = ignore;
+        _threads = Math.max(1, threads);
+    }
+
+    /**
+     * Get the resource pack root folder.
+     */
+    public File getRoot() {
+        return _root;
+    }
+
+    /**
+     * Get the rules used to exclude files and folders.
+     */
+    public PackIgnore getIgnore() {
+        return _ignore;
+    }
+
+    /**
+     * Set the rules used to exclude files and folders.
+     *
+     * @param ignore  The rules.
+     */
+    public void setIgnore(PackIgnore ignore) {
+        _ignore = ignore;
+    }
+
+    /**
+     * Scan the root folder.
+     *
+     * @return  The included files found.
+     */
+    public List<PackEntry> scan() {
+        return scan(null);
+    }
+
+    /**
+     * Scan the root folder.
+     *
+     * @param progress  Reports each included file found. May be null.
+     *
+     * @return  The included files found.
+     */
+    public List<PackEntry> scan(@Nullable Progress progress) {
+        return scan(_root, "", progress);
+    }
+
+    /**
+     * Start scanning the root folder in a shared pool.
+     *
+     * <p>Used to scan several root folders at the same time.</p>
+     *
+     * @param pool      The pool to scan in.
+     * @param progress  Reports each included file found. May be null.
+     *
+     * @return  The task that completes with the included files found.
+     */
+    public ForkJoinTask<List<PackEntry>> scan(ForkJoinPool pool, @Nullable Progress progress) {
+        return pool.submit(new ScanTask(_root.toPath(), "", progress));
+    }
+
+    /**
+     * Scan a folder within the root folder.
+     *
+     * @param folder  The folder to scan.
+     * @param path    The path of the folder relative to the root folder.
+     *
+     * @return  The included files found.
+     */
+    public List<PackEntry> scan(File folder, String path) {
+        return scan(folder, path, null);
+    }
+
+    private List<PackEntry> scan(File folder, String path, @Nullable Progress progress) {
+
+        ForkJoinPool pool = new ForkJoinPool(_threads);
+
+        try {
+            return pool.invoke(new ScanTask(folder.toPath(), path, progress));
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Get an entry for a single file within the root folder.
+     *
+     * @param file  The file.
+     * @param path  The path of the file relative to the root folder.
+     *
+     * @return  The entry or null if the file does not exist, is a directory
+     * or is not included.
+     */
+    @Nullable
+    public PackEntry scanFile(File file, String path) {
+
+        String ext = Utils.getExtension(file.getName());
+        if (!isIncluded(ext) || _ignore.isIgnored(path, false))
+            return null;
+
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+        } catch (IOException e) {
+            return null;
+        }
+
+        if (attributes.isDirectory())
+            return null;
+
+        return new PackEntry(file, path, ext,
+                attributes.size(), attributes.lastModifiedTime().toMillis());
+    }
+
+    /**
+     * Determine if a file or folder name is hidden and should not be scanned.
+     *
+     * @param name  The file or folder name.
+     */
+    public boolean isHidden(String name) {
+        return name.startsWith(".");
+    }
+
+    /**
+     * Determine if a file or folder is excluded by its name or by the ignore rules.
+     *
+     * <p>Parent folders are not checked.</p>
+     *
+     * @param path         The '/' separated path relative to the root folder.
+     * @param isDirectory  True if the path is a folder.
+     */
+    public boolean isIgnored(String path, boolean isDirectory) {
+        return isHidden(path.substring(path.lastIndexOf('/') + 1)) ||
+                _ignore.isIgnored(path, isDirectory);
+    }
+
+    /**
+     * Determine if files with the specified extension are included.
+     *
+     * @param ext  The lower case file extension.
+     */
+    public boolean isIncluded(@Nullable String ext) {
+        return ext != null && _includeExt.contains(ext);
+    }
+
+    /*
+     * Scans a single directory and forks a new task for each sub directory.
+     */
+    private class ScanTask extends RecursiveTask<List<PackEntry>> {
+
+        private static final long serialVersionUID = 1L;
+
+        final Path _folder;
+        final String _path;
+        final Progress _progress;
+
+        ScanTask(Path folder, String path, @Nullable Progress progress) {
+            _folder = folder;
+            _path = path;
+            _progress = progress;
+        }
+
+        @Override
+        protected List<PackEntry> compute() {
+
+            PackIgnore ignore = _ignore;
+            List<PackEntry> entries = new ArrayList<>(20);
+            List<ScanTask> subTasks = new ArrayList<>(10);
+
+            DirectoryStream<Path> stream;
+            try {
+                stream = Files.newDirectoryStream(_folder);
+            } catch (IOException e) {
+                Log.error("Failed to read folder: " + _folder, e);
+                return Collections.emptyList();
+            }
+
+            try {
+                for (Path child : stream) {
+
+                    String name = child.getFileName().toString();
+
+                    if (isHidden(name))
+                        continue;
+
+                    BasicFileAttributes attributes;
+                    try {
+                        attributes = Files.readAttributes(child, BasicFileAttributes.class);
+                    } catch (IOException e) {
+                        Log.error("Failed to read file attributes: " + child, e);
+                        continue;
+                    }
+
+                    String path = _path.isEmpty() ? name : _path + '/' + name;
+
+                    // excluded folders are not descended into
+                    if (ignore.isIgnored(path, attributes.isDirectory()))
+                        continue;
+
+                    if (attributes.isDirectory()) {
+                        ScanTask task = new ScanTask(child, path, _progress);
+                        task.fork();
+                        subTasks.add(task);
+                    }
+                    else {
+
+                        String ext = Utils.getExtension(name);
+                        if (!isIncluded(ext))
+                            continue;
+
+                        entries.add(new PackEntry(child.toFile(), path, ext,
+                                attributes.size(), attributes.lastModifiedTime().toMillis()));
+
+                        if (_progress != null)
+                            _progress.add(attributes.size());
+                    }
+                }
+            }
+            finally {
+                try {
+                    stream.close();
+                } catch (IOException e) {
+                    Log.error("Failed to close folder: " + _folder, e);
+                }
+            }
+
+            for (ScanTask task : subTasks) {
+                entries.addAll(task.join());
+            }
+
+            return entries;
+        }
+    }
+}
@@ -0,0 +1,339 @@
+/*
+ * This file is part of ResourcePackerMC for Bukkit, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) JCThePants (www.jcwhatever.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.jcwhatever.resourcepackermc.scanner;
+
+import com.jcwhatever.resourcepackermc.log.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchEvent.Kind;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+/**
+ * Watches a resource pack folder tree for changes using a {@link WatchService}.
+ *
+ * <p>Events are collected until no new events arrive for the debounce period
+ * and are then reported to a handler as a single batch of scanned entries.
+ * Events are reported from the watcher thread.</p>
+ */
+public class FolderWatcher {
+
+    private final FileScanner _scanner;
+    private final Path _root;
+    private final long _debounce;
+    private final IWatchHandler _handler;
+    private final Map<WatchKey, Path> _keys = new ConcurrentHashMap<>(100);
+
+    private WatchService _service;
+    private Thread _thread;
+
+    /**
+     * Constructor.
+     *
+     * @param scanner   The scanner used to scan new and modified files.
+     * @param debounce  The time in milliseconds to wait for more events before
+     *                  reporting changes.
+     * @param handler   The handler to report changes to.
+     */
+    public FolderWatcher(FileScanner scanner, long debounce, IWatchHandler handler) {
+        _scanner = scanner;
+        _root = scanner.getRoot().getAbsoluteFile().toPath();
+        _debounce = debounce;
+        _handler = handler;
+    }
+
+    /**
+     * Determine if the watcher is running.
+     */
+    public boolean isRunning() {
+        return _thread != null;
+    }
+
+    /**
+     * Register the folder tree and start watching it.
+     *
+     * @throws IOException
+     */
+    public void start() throws IOException {
+
+        if (_thread != null)
+            return;
+
+        _service = FileSystems.getDefault().newWatchService();
+        registerTree(_root);
+
+        _thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                watch();
+            }
+        }, "FolderWatcher");
+
+        _thread.setDaemon(true);
+        _thread.start();
+    }
+
+    /**
+     * Stop watching the folder tree.
+     */
+    public void stop() {
+
+        if (_thread == null)
+            return;
+
+        _thread.interrupt();
+        _thread = null;
+
+        try {
+            _service.close();
+        } catch (IOException e) {
+            Log.error("Failed to close watch service", e);
+        }
+
+        _keys.clear();
+    }
+
+    /*
+     * Watcher thread loop.
+     */
+    private void watch() {
+
+        Map<Path, Kind<?>> pending = new LinkedHashMap<>(50);
+        boolean overflow = false;
+        long firstEvent = 0;
+
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+
+                WatchKey key = pending.isEmpty() && !overflow
+                        ? _service.take()
+                        : _service.poll(_debounce, TimeUnit.MILLISECONDS);
+
+                if (key != null) {
+
+                    Path folder = _keys.get(key);
+
+                    for (WatchEvent<?> event : key.pollEvents()) {
+
+                        Kind<?> kind = event.kind();
+
+                        if (kind == StandardWatchEventKinds.OVERFLOW) {
+                            overflow = true;
+                            continue;
+                        }
+
+                        if (folder == null)
+                            continue;
+
+                        Path path = folder.resolve((Path) event.context());
+
+                        // a create followed by other events is still a create
+                        if (pending.get(path) != StandardWatchEventKinds.ENTRY_CREATE)
+                            pending.put(path, kind);
+                    }
+
+                    if (!key.reset())
+                        _keys.remove(key);
+
+                    if (firstEvent == 0)
+                        firstEvent = System.currentTimeMillis();
+
+                    // keep collecting unless events have been arriving for too long
+                    if (System.currentTimeMillis() - firstEvent < _debounce * 10)
+                        continue;
+                }
+
+                // changed ignore rules may include or exclude any folder
+                if (pending.containsKey(_root.resolve(PackIgnore.FILE_NAME)))
+                    overflow = true;
+
+                if (overflow) {
+                    registerTree(_root);
+                    _handler.onRescanRequired();
+                }
+                else {
+                    flush(pending);
+                }
+
+                pending.clear();
+                overflow = false;
+                firstEvent = 0;
+            }
+        }
+        catch (InterruptedException | ClosedWatchServiceException ignore) {
+            // stopped
+        }
+        catch (IOException e) {
+            Log.error("Folder watcher stopped", e);
+        }
+    }
+
+    /*
+     * Scan the pending paths and report them to the handler.
+     */
+    private void flush(Map<Path, Kind<?>> pending) throws IOException {
+
+        List<PackEntry> updated = new ArrayList<>(pending.size());
+        List<String> removed = new ArrayList<>(5);
+
+        for (Entry<Path, Kind<?>> entry : pending.entrySet()) {
+
+            Path path = entry.getKey();
+
+            String relative = getRelativePath(path);
+            if (relative == null)
+                continue;
+
+            File file = path.toFile();
+
+            if (Files.isDirectory(path)) {
+
+                // Only new directories need to be scanned. Modified directories
+                // report changes to their own files.
+                if (entry.getValue() == StandardWatchEventKinds.ENTRY_CREATE &&
+                        !_scanner.isIgnored(relative, true)) {
+                    registerTree(path);
+                    updated.addAll(_scanner.scan(file, relative));
+                }
+            }
+            else if (Files.exists(path)) {
+
+                PackEntry packEntry = _scanner.scanFile(file, relative);
+                if (packEntry != null)
+                    updated.add(packEntry);
+            }
+            else {
+                removed.add(relative);
+            }
+        }
+
+        if (!updated.isEmpty() || !removed.isEmpty())
+            _handler.onChanged(updated, removed);
+    }
+
+    /*
+     * Register a folder and all of its visible sub folders.
+     */
+    private void registerTree(Path folder) throws IOException {
+
+        Files.walkFileTree(folder, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs)
+                    throws IOException {
+
+                if (!dir.equals(_root)) {
+
+                    String relative = getRelativePath(dir);
+                    if (relative == null || _scanner.isIgnored(relative, true))
+                        return FileVisitResult.SKIP_SUBTREE;
+                }
+
+                WatchKey key = dir.register(_service,
+                        StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_DELETE,
+                        StandardWatchEventKinds.ENTRY_MODIFY);
+
+                _keys.put(key, dir);
+
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /*
+     * Get the '/' separated path relative to the root folder or null if
+     * the path is hidden or any of its parents is hidden or ignored.
+     */
+    @Nullable
+    private String getRelativePath(Path path) {
+
+        Path relative = _root.relativize(path);
+        StringBuilder sb = new StringBuilder(50);
+
+        for (Path segment : relative) {
+
+            if (sb.length() != 0) {
+
+                // parent folder
+                if (_scanner.isIgnored(sb.toString(), true))
+                    return null;
+
+                sb.append('/');
+            }
+
+            String name = segment.toString();
+            if (_scanner.isHidden(name))
+                return null;
+
+            sb.append(name);
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Handles changes detected by a {@link FolderWatcher}.
+     */
+    public interface IWatchHandler {
+
+        /**
+         * Invoked from the watcher thread when files are changed.
+         *
+         * @param updated  Entries of files that were created or modified.
+         * @param removed  Relative paths of files and folders that were deleted.
+         */
+        void onChanged(List<PackEntry> updated, List<String> removed);
+
+        /**
+         * Invoked from the watcher thread when the folder should be fully rescanned
+         * because too many events occurred to be tracked individually or because
+         * the ignore rules file was changed.
+         */
+        void onRescanRequired();
+    }
+}
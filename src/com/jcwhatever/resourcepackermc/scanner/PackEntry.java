@@ -0,0 +1,100 @@
+/*
+ * This file is part of ResourcePackerMC for Bukkit, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) JCThePants (www.jcwhatever.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.jcwhatever.resourcepackermc.scanner;
+
+import java.io.File;
+
+/**
+ * A file found while scanning a resource pack folder.
+ */
+public class PackEntry {
+
+    private final File _file;
+    private final String _path;
+    private final String _extension;
+    private final long _size;
+    private final long _lastModified;
+
+    /**
+     * Constructor.
+     *
+     * @param file          The file.
+     * @param path          The path of the file relative to the resource pack root folder
+     *                      using '/' as the separator.
+     * @param extension     The lower case file extension.
+     * @param size          The file size in bytes.
+     * @param lastModified  The last modified time of the file in milliseconds.
+     */
+    public PackEntry(File file, String path, String extension, long size, long lastModified) {
+        _file = file;
+        _path = path;
+        _extension = extension;
+        _size = size;
+        _lastModified = lastModified;
+    }
+
+    /**
+     * Get the file.
+     */
+    public File getFile() {
+        return _file;
+    }
+
+    /**
+     * Get the path of the file relative to the resource pack root folder.
+     *
+     * <p>Always uses '/' as the separator and never starts with one.</p>
+     */
+    public String getPath() {
+        return _path;
+    }
+
+    /**
+     * Get the lower case file extension, not including the dot.
+     */
+    public String getExtension() {
+        return _extension;
+    }
+
+    /**
+     * Get the size of the file in bytes at the time it was scanned.
+     */
+    public long getSize() {
+        return _size;
+    }
+
+    /**
+     * Get the last modified time of the file in milliseconds at the time
+     * it was scanned.
+     */
+    public long getLastModified() {
+        return _lastModified;
+    }
+
+    @Override
+    public String toString() {
+        return _path;
+    }
+}
@@ -0,0 +1,276 @@
+/*
+ * This file is part of ResourcePackerMC for Bukkit, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) JCThePants (www.jcwhatever.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.jcwhatever.resourcepackermc.scanner;
+
+import com.jcwhatever.resourcepackermc.log.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Rules that exclude files and folders from a resource pack.
+ *
+ * <p>Rules are read from a {@code .packignore} file in the resource pack root
+ * folder and use the same syntax as a {@code .gitignore} file:</p>
+ *
+ * <ul>
+ *     <li>Blank lines and lines starting with {@code #} are ignored.</li>
+ *     <li>A leading {@code !} negates the rule, including a previously excluded path.</li>
+ *     <li>A trailing {@code /} only matches folders.</li>
+ *     <li>A rule containing a {@code /} is matched against the path relative to the
+ *     root folder. Otherwise it is matched against the file or folder name at any depth.</li>
+ *     <li>{@code *} and {@code ?} do not match {@code /}. {@code **} matches any number
+ *     of folders.</li>
+ * </ul>
+ *
+ * <p>The last matching rule wins. Excluded folders are not scanned, so files inside
+ * an excluded folder cannot be included again.</p>
+ */
+public class PackIgnore {
+
+    public static final String FILE_NAME = ".packignore";
+
+    /**
+     * An empty set of rules that does not exclude anything.
+     */
+    public static final PackIgnore EMPTY = new PackIgnore(Collections.<String>emptyList());
+
+    /**
+     * Load the rules from the {@code .packignore} file of a resource pack folder.
+     *
+     * @param root  The resource pack root folder.
+     *
+     * @return  The rules or {@link #EMPTY} if the file does not exist.
+     */
+    public static PackIgnore load(File root) {
+
+        File file = new File(root, FILE_NAME);
+        if (!file.isFile())
+            return EMPTY;
+
+        try {
+            return new PackIgnore(Files.readAllLines(file.toPath(), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            Log.error("Failed to read " + FILE_NAME + " file: " + file, e);
+            return EMPTY;
+        }
+    }
+
+    private final List<Rule> _rules;
+
+    /**
+     * Constructor.
+     *
+     * @param lines  The lines of a {@code .packignore} file. Invalid rules
+     *               are logged and skipped.
+     */
+    public PackIgnore(List<String> lines) {
+
+        _rules = new ArrayList<>(lines.size());
+
+        for (String line : lines) {
+            try {
+                Rule rule = Rule.parse(line);
+                if (rule != null)
+                    _rules.add(rule);
+            }
+            catch (PatternSyntaxException e) {
+                Log.warning("Invalid " + FILE_NAME + " rule, " + e.getDescription() + ": " + line);
+            }
+        }
+    }
+
+    /**
+     * Determine if there are no rules.
+     */
+    public boolean isEmpty() {
+        return _rules.isEmpty();
+    }
+
+    /**
+     * Determine if a file or folder is excluded.
+     *
+     * <p>Parent folders are not checked.</p>
+     *
+     * @param path         The '/' separated path relative to the root folder.
+     * @param isDirectory  True if the path is a folder.
+     */
+    public boolean isIgnored(String path, boolean isDirectory) {
+
+        if (_rules.isEmpty())
+            return false;
+
+        String name = path.substring(path.lastIndexOf('/') + 1);
+        boolean isIgnored = false;
+
+        for (Rule rule : _rules) {
+
+            if (rule._isNegated != isIgnored)
+                continue;
+
+            if (rule._isDirectoryOnly && !isDirectory)
+                continue;
+
+            if (rule._pattern.matcher(rule._isAnchored ? path : name).matches())
+                isIgnored = !rule._isNegated;
+        }
+
+        return isIgnored;
+    }
+
+    /**
+     * Convert a glob that uses the {@code .packignore} syntax to a regular expression.
+     *
+     * @param glob  The glob.
+     */
+    public static String toRegex(String glob) {
+
+        StringBuilder sb = new StringBuilder(glob.length() * 2);
+        int len = glob.length();
+
+        for (int i = 0; i < len; i++) {
+
+            char ch = glob.charAt(i);
+
+            switch (ch) {
+                case '*':
+                    if (i + 1 < len && glob.charAt(i + 1) == '*') {
+
+                        boolean isSegmentStart = i == 0 || glob.charAt(i - 1) == '/';
+                        i++;
+
+                        if (isSegmentStart && i + 1 < len && glob.charAt(i + 1) == '/') {
+                            // "**/" matches zero or more folders
+                            sb.append("(?:.*/)?");
+                            i++;
+                        }
+                        else {
+                            sb.append(".*");
+                        }
+                    }
+                    else {
+                        sb.append("[^/]*");
+                    }
+                    break;
+
+                case '?':
+                    sb.append("[^/]");
+                    break;
+
+                case '[':
+                    int end = glob.indexOf(']', i + 2);
+                    if (end == -1) {
+                        sb.append("\\[");
+                        break;
+                    }
+
+                    String range = glob.substring(i + 1, end);
+                    if (range.startsWith("!"))
+                        range = '^' + range.substring(1);
+
+                    sb.append('[').append(range.replace("\\", "\\\\").replace("[", "\\[")).append(']');
+                    i = end;
+                    break;
+
+                case '\\':
+                    if (i + 1 < len) {
+                        i++;
+                        sb.append(Pattern.quote(String.valueOf(glob.charAt(i))));
+                    }
+                    break;
+
+                default:
+                    if ("().+^$|{}".indexOf(ch) != -1)
+                        sb.append('\\');
+
+                    sb.append(ch);
+                    break;
+            }
+        }
+
+        return sb.toString();
+    }
+
+    /*
+     * A single compiled rule.
+     */
+    private static class Rule {
+
+        final Pattern _pattern;
+        final boolean _isNegated;
+        final boolean _isDirectoryOnly;
+        final boolean _isAnchored;
+
+        Rule(Pattern pattern, boolean isNegated, boolean isDirectoryOnly, boolean isAnchored) {
+            _pattern = pattern;
+            _isNegated = isNegated;
+            _isDirectoryOnly = isDirectoryOnly;
+            _isAnchored = isAnchored;
+        }
+
+        static Rule parse(String line) {
+
+            // trailing spaces are ignored
+            int end = line.length();
+            while (end > 0 && Character.isWhitespace(line.charAt(end - 1)))
+                end--;
+
+            line = line.substring(0, end);
+
+            if (line.isEmpty() || line.startsWith("#"))
+                return null;
+
+            boolean isNegated = false;
+
+            if (line.startsWith("!")) {
+                isNegated = true;
+                line = line.substring(1);
+            }
+            else if (line.startsWith("\\!") || line.startsWith("\\#")) {
+                line = line.substring(1);
+            }
+
+            boolean isDirectoryOnly = line.endsWith("/");
+            if (isDirectoryOnly)
+                line = line.substring(0, line.length() - 1);
+
+            boolean isAnchored = line.indexOf('/') != -1;
+            if (line.startsWith("/"))
+                line = line.substring(1);
+
+            if (line.isEmpty())
+                return null;
+
+            return new Rule(Pattern.compile(toRegex(line)), isNegated, isDirectoryOnly, isAnchored);
+        }
+    }
+}
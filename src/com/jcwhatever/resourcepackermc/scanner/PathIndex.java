@@ -0,0 +1,406 @@
+/*
+ * This file is part of ResourcePackerMC for Bukkit, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) JCThePants (www.jcwhatever.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.jcwhatever.resourcepackermc.scanner;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * An index of {@link PackEntry}'s by relative path.
+ *
+ * <p>Paths are stored as a tree of folder and file name segments. Segments
+ * are interned so that folder names shared by many files are stored once, and
+ * released when no node uses them. Each level of the tree is a hash lookup, so
+ * path queries are proportional to the depth of the path rather than the number
+ * of files. Entries are also indexed by file name.</p>
+ *
+ * <p>Folders only exist in the index while they contain at least one entry.</p>
+ *
+ * <p>Not thread safe.</p>
+ */
+public class PathIndex {
+
+    private final Map<String, Segment> _segments = new HashMap<>(100);
+    private final Map<String, Set<PackEntry>> _names = new HashMap<>(100);
+    private Node _root = new Node(null, "");
+    private int _size;
+
+    /**
+     * Get the number of entries in the index.
+     */
+    public int size() {
+        return _size;
+    }
+
+    /**
+     * Determine if the index has no entries.
+     */
+    public boolean isEmpty() {
+        return _size == 0;
+    }
+
+    /**
+     * Determine if the index contains an entry for a file.
+     *
+     * @param path  The '/' separated path of the file relative to the root folder.
+     */
+    public boolean contains(String path) {
+        return get(path) != null;
+    }
+
+    /**
+     * Determine if a path is a folder that contains entries.
+     *
+     * @param path  The '/' separated path of the folder relative to the root folder.
+     *              An empty string is the root folder.
+     */
+    public boolean isDirectory(String path) {
+        Node node = getNode(path);
+        return node != null && node._entry == null;
+    }
+
+    /**
+     * Get the entry for a file.
+     *
+     * @param path  The '/' separated path of the file relative to the root folder.
+     *
+     * @return  The entry or null if not found.
+     */
+    @Nullable
+    public PackEntry get(String path) {
+        Node node = getNode(path);
+        return node != null ? node._entry : null;
+    }
+
+    /**
+     * Add an entry or replace the entry with the same path.
+     *
+     * @param entry  The entry to add.
+     *
+     * @return  The replaced entry or null if there was none.
+     */
+    @Nullable
+    public PackEntry put(PackEntry entry) {
+
+        String path = entry.getPath();
+        Node node = _root;
+        int start = 0;
+
+        while (true) {
+
+            int end = path.indexOf('/', start);
+            String segment = end == -1
+                    ? path.substring(start)
+                    : path.substring(start, end);
+
+            // a file that has been replaced by a folder
+            if (node._entry != null)
+                removeEntry(node);
+
+            if (node._children == null)
+                node._children = new HashMap<>(8);
+
+            Node child = node._children.get(segment);
+            if (child == null) {
+                child = new Node(node, intern(segment));
+                node._children.put(child._name, child);
+            }
+
+            node = child;
+
+            if (end == -1)
+                break;
+
+            start = end + 1;
+        }
+
+        PackEntry previous = null;
+
+        if (node._entry != null) {
+            previous = node._entry;
+            removeEntry(node);
+        }
+        else if (node._children != null) {
+            // a folder that has been replaced by a file
+            List<PackEntry> removed = new ArrayList<>(10);
+            collect(node, removed);
+
+            for (PackEntry removedEntry : removed) {
+                removeName(removedEntry);
+            }
+
+            for (Node child : node._children.values()) {
+                release(child);
+            }
+
+            _size -= removed.size();
+            node._children = null;
+        }
+
+        node._entry = entry;
+        _size++;
+
+        String name = node._name;
+        Set<PackEntry> named = _names.get(name);
+        if (named == null) {
+            named = new LinkedHashSet<>(2);
+            _names.put(name, named);
+        }
+        named.add(entry);
+
+        return previous;
+    }
+
+    /**
+     * Remove the entry for a file or all entries in a folder.
+     *
+     * <p>Folders left empty are removed.</p>
+     *
+     * @param path  The '/' separated path of the file or folder relative to the root folder.
+     *
+     * @return  The removed entries.
+     */
+    public List<PackEntry> remove(String path) {
+
+        Node node = getNode(path);
+        if (node == null)
+            return Collections.emptyList();
+
+        if (node == _root) {
+            List<PackEntry> removed = getEntries();
+            clear();
+            return removed;
+        }
+
+        List<PackEntry> removed = new ArrayList<>(node._entry != null ? 1 : 10);
+        removeNode(node, removed);
+
+        return removed;
+    }
+
+    /**
+     * Remove all entries.
+     */
+    public void clear() {
+        _root = new Node(null, "");
+        _names.clear();
+        _segments.clear();
+        _size = 0;
+    }
+
+    /**
+     * Find entries by file name.
+     *
+     * @param name  The case sensitive file name.
+     *
+     * @return  The entries of files with the name in the order they were added.
+     * Not modifiable.
+     */
+    public Collection<PackEntry> findByName(String name) {
+
+        Set<PackEntry> named = _names.get(name);
+        if (named == null)
+            return Collections.emptyList();
+
+        return Collections.unmodifiableSet(named);
+    }
+
+    /**
+     * Get the names of the files and folders in a folder.
+     *
+     * @param path  The '/' separated path of the folder relative to the root folder.
+     *              An empty string is the root folder.
+     *
+     * @return  The names in no particular order. Empty if the path is not a folder.
+     */
+    public List<String> getChildren(String path) {
+
+        Node node = getNode(path);
+        if (node == null || node._children == null)
+            return Collections.emptyList();
+
+        return new ArrayList<>(node._children.keySet());
+    }
+
+    /**
+     * Get all entries.
+     */
+    public List<PackEntry> getEntries() {
+
+        List<PackEntry> entries = new ArrayList<>(_size);
+        collect(_root, entries);
+        return entries;
+    }
+
+    @Nullable
+    private Node getNode(String path) {
+
+        if (path.isEmpty())
+            return _root;
+
+        Node node = _root;
+        int start = 0;
+
+        while (node != null) {
+
+            if (node._children == null)
+                return null;
+
+            int end = path.indexOf('/', start);
+            if (end == -1)
+                return node._children.get(path.substring(start));
+
+            node = node._children.get(path.substring(start, end));
+            start = end + 1;
+        }
+
+        return null;
+    }
+
+    private String intern(String segment) {
+
+        Segment interned = _segments.get(segment);
+        if (interned == null) {
+            interned = new Segment(segment);
+            _segments.put(segment, interned);
+        }
+
+        interned._count++;
+        return interned._value;
+    }
+
+    /*
+     * Release the interned segments of a removed node and its descendants.
+     */
+    private void release(Node node) {
+
+        Segment segment = _segments.get(node._name);
+        if (segment != null && --segment._count == 0)
+            _segments.remove(node._name);
+
+        if (node._children == null)
+            return;
+
+        for (Node child : node._children.values()) {
+            release(child);
+        }
+    }
+
+    /*
+     * Remove a node and prune parent folders left empty.
+     */
+    private void removeNode(Node node, List<PackEntry> removed) {
+
+        collect(node, removed);
+
+        for (PackEntry entry : removed) {
+            removeName(entry);
+        }
+        _size -= removed.size();
+
+        release(node);
+
+        Node parent = node._parent;
+
+        while (parent != null) {
+
+            parent._children.remove(node._name);
+
+            if (!parent._children.isEmpty() || parent == _root)
+                return;
+
+            release(parent);
+
+            node = parent;
+            parent = node._parent;
+        }
+    }
+
+    /*
+     * Remove the entry of a node without removing the node.
+     */
+    private void removeEntry(Node node) {
+        removeName(node._entry);
+        node._entry = null;
+        _size--;
+    }
+
+    private void removeName(PackEntry entry) {
+
+        String name = entry.getPath().substring(entry.getPath().lastIndexOf('/') + 1);
+
+        Set<PackEntry> named = _names.get(name);
+        if (named == null)
+            return;
+
+        named.remove(entry);
+
+        if (named.isEmpty())
+            _names.remove(name);
+    }
+
+    private void collect(Node node, List<PackEntry> entries) {
+
+        if (node._entry != null)
+            entries.add(node._entry);
+
+        if (node._children == null)
+            return;
+
+        for (Node child : node._children.values()) {
+            collect(child, entries);
+        }
+    }
+
+    private static class Segment {
+
+        final String _value;
+        int _count;
+
+        Segment(String value) {
+            _value = value;
+        }
+    }
+
+    private static class Node {
+
+        final Node _parent;
+        final String _name;
+        Map<String, Node> _children;
+        PackEntry _entry;
+
+        Node(@Nullable Node parent, String name) {
+            _parent = parent;
+            _name = name;
+        }
+    }
+}
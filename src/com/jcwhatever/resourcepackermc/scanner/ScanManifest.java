@@ -0,0 +1,483 @@
+/*
+ * This file is part of ResourcePackerMC for Bukkit, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) JCThePants (www.jcwhatever.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.jcwhatever.resourcepackermc.scanner;
+
+import com.jcwhatever.resourcepackermc.Utils;
+import com.jcwhatever.resourcepackermc.log.Log;
+import com.jcwhatever.resourcepackermc.log.Progress;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.Nullable;
+
+/**
+ * Persistent record of the size, last modified time and content hash
+ * of each file in a resource pack folder.
+ *
+ * <p>Stored in the resource pack folder at {@code .resourcepacker/manifest.bin}.
+ * Files whose size and last modified time match the recorded values are
+ * trusted and are not read again.</p>
+ *
+ * <p>Also records a fingerprint of the last generated resource pack zip file
+ * so that the zip file does not need to be regenerated if nothing has changed.</p>
+ */
+public class ScanManifest {
+
+    public static final String FOLDER_NAME = ".resourcepacker";
+    public static final String FILE_NAME = "manifest.bin";
+
+    private static final int MAGIC = 0x52504D46; // RPMF
+    private static final int VERSION = 3;
+
+    /**
+     * Get the manifest file of a resource pack folder.
+     *
+     * @param root  The resource pack root folder.
+     */
+    public static File getFile(File root) {
+        return new File(new File(root, FOLDER_NAME), FILE_NAME);
+    }
+
+    /**
+     * Load the manifest of a resource pack folder.
+     *
+     * <p>If the manifest does not exist or cannot be read, an empty
+     * manifest is returned.</p>
+     *
+     * @param root  The resource pack root folder.
+     */
+    public static ScanManifest load(File root) {
+
+        ScanManifest manifest = new ScanManifest(root);
+        File file = getFile(root);
+
+        if (!file.exists())
+            return manifest;
+
+        DataInputStream stream = null;
+
+        try {
+            stream = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+
+            if (stream.readInt() != MAGIC)
+                return manifest;
+
+            // version 1 does not have the hashes of the zip file and
+            // version 2 does not have the compression rules
+            int version = stream.readInt();
+            if (version < 1 || version > VERSION)
+                return manifest;
+
+            int size = stream.readInt();
+
+            for (int i = 0; i < size; i++) {
+                String path = stream.readUTF();
+                long fileSize = stream.readLong();
+                long lastModified = stream.readLong();
+                byte[] hash = new byte[stream.readUnsignedByte()];
+                stream.readFully(hash);
+
+                manifest._records.put(path, new Record(fileSize, lastModified, hash));
+            }
+
+            if (stream.readBoolean()) {
+                manifest._packPath = stream.readUTF();
+                manifest._packSize = stream.readLong();
+                manifest._packModified = stream.readLong();
+                manifest._packFingerprint = stream.readUTF();
+
+                if (version >= 2) {
+                    manifest._packSha1 = emptyToNull(stream.readUTF());
+                    manifest._packSha256 = emptyToNull(stream.readUTF());
+                }
+
+                if (version >= 3)
+                    manifest._packRules = emptyToNull(stream.readUTF());
+            }
+        }
+        catch (IOException e) {
+            Log.error("Failed to read manifest: " + file, e);
+            return new ScanManifest(root);
+        }
+        finally {
+            if (stream != null) {
+                try {
+                    stream.close();
+                } catch (IOException e) {
+                    Log.error("Failed to close manifest: " + file, e);
+                }
+            }
+        }
+
+        return manifest;
+    }
+
+    private final File _root;
+    private final Path _rootPath;
+    private final Map<String, Record> _records = new ConcurrentHashMap<>(100);
+
+    private String _packPath;
+    private long _packSize;
+    private long _packModified;
+    private String _packFingerprint;
+    private String _packSha1;
+    private String _packSha256;
+    private String _packRules;
+
+    private volatile boolean _isChanged;
+
+    /**
+     * Constructor.
+     *
+     * @param root  The resource pack root folder.
+     */
+    private ScanManifest(File root) {
+        _root = root;
+        _rootPath = root.getAbsoluteFile().toPath();
+    }
+
+    /**
+     * Get the resource pack root folder.
+     */
+    public File getRoot() {
+        return _root;
+    }
+
+    /**
+     * Update the manifest with the results of a scan.
+     *
+     * <p>Records of files in the root folder that are no longer present are removed.
+     * Records of files outside of the root folder, such as generated files hashed by
+     * {@link #getHash}, are kept while the file exists. New files and files whose size
+     * or last modified time has changed are hashed in parallel.</p>
+     *
+     * @param entries  The scanned entries.
+     * @param threads  The number of threads to hash files with.
+     *
+     * @return  The number of files that were hashed.
+     */
+    public int update(Collection<PackEntry> entries, int threads) {
+
+        Set<String> found = new HashSet<>(entries.size());
+        final List<PackEntry> changed = new ArrayList<>(20);
+
+        for (PackEntry entry : entries) {
+            String path = getPath(entry.getFile());
+            found.add(path);
+
+            Record record = _records.get(path);
+            if (record == null || !record.matches(entry.getSize(), entry.getLastModified()))
+                changed.add(entry);
+        }
+
+        Iterator<String> iterator = _records.keySet().iterator();
+
+        while (iterator.hasNext()) {
+            String path = iterator.next();
+
+            if (found.contains(path))
+                continue;
+
+            // files outside of the root folder are keyed by their absolute path
+            File file = new File(path);
+            if (file.isAbsolute() && file.exists())
+                continue;
+
+            iterator.remove();
+            _isChanged = true;
+        }
+
+        if (changed.isEmpty())
+            return 0;
+
+        List<Callable<Void>> tasks = new ArrayList<>(changed.size());
+        long totalBytes = 0;
+
+        for (PackEntry entry : changed) {
+            totalBytes += entry.getSize();
+        }
+
+        final Progress progress = new Progress("Hashing", changed.size(), totalBytes);
+
+        for (final PackEntry entry : changed) {
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    byte[] hash = Utils.getFileHash(entry.getFile());
+                    _records.put(getPath(entry.getFile()),
+                            new Record(entry.getSize(), entry.getLastModified(), hash));
+                    _isChanged = true;
+                    progress.add(entry.getSize());
+                    return null;
+                }
+            });
+        }
+
+        Utils.invokeAll(tasks, threads);
+        progress.finish();
+
+        return changed.size();
+    }
+
+    /**
+     * Get the content hash of a file.
+     *
+     * <p>If the file size and last modified time match the recorded values, the
+     * recorded hash is returned. Otherwise the file is read, hashed and recorded.</p>
+     *
+     * @param file  The file.
+     *
+     * @return  The hash or null if the file could not be read.
+     */
+    @Nullable
+    public byte[] getHash(File file) {
+
+        String path = getPath(file);
+        long size = file.length();
+        long lastModified = file.lastModified();
+
+        Record record = _records.get(path);
+        if (record != null && record.matches(size, lastModified))
+            return record._hash;
+
+        byte[] hash;
+        try {
+            hash = Utils.getFileHash(file);
+        } catch (IOException e) {
+            Log.error("Failed to hash file: " + file, e);
+            return null;
+        }
+
+        _records.put(path, new Record(size, lastModified, hash));
+        _isChanged = true;
+
+        return hash;
+    }
+
+    /**
+     * Determine if a resource pack zip file was generated from files matching
+     * the specified fingerprint and has not been modified since.
+     *
+     * @param zipFile      The zip file.
+     * @param fingerprint  The fingerprint of the files that would be packed.
+     */
+    public boolean isPackCurrent(File zipFile, String fingerprint) {
+        return _packFingerprint != null &&
+                _packFingerprint.equals(fingerprint) &&
+                zipFile.getAbsolutePath().equals(_packPath) &&
+                zipFile.length() == _packSize &&
+                zipFile.lastModified() == _packModified;
+    }
+
+    /**
+     * Record a generated resource pack zip file.
+     *
+     * @param zipFile      The zip file.
+     * @param fingerprint  The fingerprint of the files that were packed.
+     */
+    public void setPack(File zipFile, String fingerprint) {
+        setPack(zipFile, fingerprint, null, null, null);
+    }
+
+    /**
+     * Record a generated resource pack zip file and its hashes.
+     *
+     * @param zipFile      The zip file.
+     * @param fingerprint  The fingerprint of the files that were packed.
+     * @param rules        The fingerprint of the compression rules the entries
+     *                     were compressed with. May be null.
+     * @param sha1         The hex SHA-1 of the zip file. May be null.
+     * @param sha256       The hex SHA-256 of the zip file. May be null.
+     */
+    public void setPack(File zipFile, String fingerprint, @Nullable String rules,
+                        @Nullable String sha1, @Nullable String sha256) {
+        _packPath = zipFile.getAbsolutePath();
+        _packSize = zipFile.length();
+        _packModified = zipFile.lastModified();
+        _packFingerprint = fingerprint;
+        _packRules = rules;
+        _packSha1 = sha1;
+        _packSha256 = sha256;
+        _isChanged = true;
+    }
+
+    /**
+     * Get the fingerprint of the compression rules a resource pack zip file
+     * was generated with.
+     *
+     * @param zipFile  The zip file.
+     *
+     * @return  The fingerprint or null if the zip file is not the recorded zip file,
+     * has been modified since it was recorded or the rules were not recorded.
+     */
+    @Nullable
+    public String getPackRules(File zipFile) {
+
+        if (!zipFile.getAbsolutePath().equals(_packPath) ||
+                zipFile.length() != _packSize ||
+                zipFile.lastModified() != _packModified) {
+            return null;
+        }
+
+        return _packRules;
+    }
+
+    /**
+     * Get the hex SHA-1 of the recorded resource pack zip file.
+     *
+     * @return  The hash or null if not recorded.
+     */
+    @Nullable
+    public String getPackSha1() {
+        return _packSha1;
+    }
+
+    /**
+     * Get the hex SHA-256 of the recorded resource pack zip file.
+     *
+     * @return  The hash or null if not recorded.
+     */
+    @Nullable
+    public String getPackSha256() {
+        return _packSha256;
+    }
+
+    /**
+     * Save the manifest into the resource pack folder if it has changed.
+     */
+    public void save() {
+
+        if (!_isChanged)
+            return;
+
+        File file = getFile(_root);
+        File folder = file.getParentFile();
+
+        if (!folder.exists() && !folder.mkdirs()) {
+            Log.error("Failed to create folder: " + folder);
+            return;
+        }
+
+        DataOutputStream stream = null;
+
+        try {
+            stream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+
+            stream.writeInt(MAGIC);
+            stream.writeInt(VERSION);
+            stream.writeInt(_records.size());
+
+            for (Map.Entry<String, Record> entry : _records.entrySet()) {
+                Record record = entry.getValue();
+                stream.writeUTF(entry.getKey());
+                stream.writeLong(record._size);
+                stream.writeLong(record._lastModified);
+                stream.writeByte(record._hash.length);
+                stream.write(record._hash);
+            }
+
+            stream.writeBoolean(_packFingerprint != null);
+
+            if (_packFingerprint != null) {
+                stream.writeUTF(_packPath);
+                stream.writeLong(_packSize);
+                stream.writeLong(_packModified);
+                stream.writeUTF(_packFingerprint);
+                stream.writeUTF(_packSha1 != null ? _packSha1 : "");
+                stream.writeUTF(_packSha256 != null ? _packSha256 : "");
+                stream.writeUTF(_packRules != null ? _packRules : "");
+            }
+
+            _isChanged = false;
+        }
+        catch (IOException e) {
+            Log.error("Failed to write manifest: " + file, e);
+        }
+        finally {
+            if (stream != null) {
+                try {
+                    stream.close();
+                } catch (IOException e) {
+                    Log.error("Failed to close manifest: " + file, e);
+                }
+            }
+        }
+    }
+
+    @Nullable
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+
+    /*
+     * Get the key of a file. Files in the root folder are keyed by their
+     * relative path and files in other folders, such as overlay folders,
+     * by their absolute path.
+     */
+    private String getPath(File file) {
+
+        Path path = file.getAbsoluteFile().toPath();
+        if (!path.startsWith(_rootPath))
+            return path.toString().replace(File.separatorChar, '/');
+
+        return _rootPath.relativize(path).toString().replace(File.separatorChar, '/');
+    }
+
+    /*
+     * A recorded file.
+     */
+    private static class Record {
+
+        final long _size;
+        final long _lastModified;
+        final byte[] _hash;
+
+        Record(long size, long lastModified, byte[] hash) {
+            _size = size;
+            _lastModified = lastModified;
+            _hash = hash;
+        }
+
+        boolean matches(long size, long lastModified) {
+            return _size == size && _lastModified == lastModified;
+        }
+    }
+}
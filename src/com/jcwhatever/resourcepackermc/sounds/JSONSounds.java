@@ -27,6 +27,7 @@ package com.jcwhatever.resourcepackermc.sounds;
 
 import com.jcwhatever.resourcepackermc.Utils;
 import com.jcwhatever.resourcepackermc.Utils.ITextWriteHandler;
+import com.jcwhatever.resourcepackermc.log.Log;
 
 import org.apache.sling.commons.json.JSONException;
 import org.apache.sling.commons.json.JSONObject;
@@ -78,7 +79,7 @@ public class JSONSounds {
             try {
                 scanner = new Scanner(new FileInputStream(file), "UTF-8");
             } catch (FileNotFoundException e) {
-                e.printStackTrace();
+                Log.error("Failed to read sounds.json file: " + file, e);
                 return;
             }
 
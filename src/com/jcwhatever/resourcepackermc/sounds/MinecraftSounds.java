@@ -24,9 +24,7 @@
 
 package com.jcwhatever.resourcepackermc.sounds;
 
-import java.util.Collection;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.Set;
 
 /**
@@ -62,34 +60,6 @@ public class MinecraftSounds {
         return _paths.contains(soundPath);
     }
 
-    /**
-     * Remove all sounds from a collection that are default minecraft sounds.
-     *
-     * @param sounds  The sound collection to modify.
-     *
-     * @return The collection passed into the sounds parameter.
-     */
-    public static Collection<OggSound> removeMinecraft(Collection<OggSound> sounds) {
-
-        // remove standard minecraft files from list
-        Iterator<OggSound> iterator = sounds.iterator();
-
-        while (iterator.hasNext()) {
-            OggSound sound = iterator.next();
-
-            String soundPath = sound.getSoundPath();
-            if (soundPath == null) {
-                iterator.remove();
-                continue;
-            }
-
-            if (MinecraftSounds.contains(soundPath))
-                iterator.remove();
-        }
-
-        return sounds;
-    }
-
     static {
         add("ambient/cave/cave");
         add("ambient/weather/rain");
@@ -0,0 +1,601 @@
+/*
+ * This file is part of ResourcePackerMC for Bukkit, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) JCThePants (www.jcwhatever.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.jcwhatever.resourcepackermc.sounds;
+
+import com.jcwhatever.resourcepackermc.log.Log;
+import com.jcwhatever.resourcepackermc.sounds.ogg.OggPages;
+import com.jcwhatever.resourcepackermc.sounds.ogg.VorbisHeaders;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.WeakHashMap;
+import javax.annotation.Nullable;
+
+/**
+ * Info read from the headers of an ogg file.
+ *
+ * <p>Comment values are stored in flat arrays and short values are shared
+ * through a dictionary, since the same artist, album, genre and license
+ * usually repeat across many sounds in a pack.</p>
+ *
+ * <p>Immutable. Safe to share between threads.</p>
+ */
+public final class OggMetadata {
+
+    private static final int TITLE = 0;
+    private static final int DESCRIPTION = 1;
+    private static final int ARTIST = 2;
+    private static final int ALBUM = 3;
+    private static final int TRACK_NUMBER = 4;
+    private static final int PERFORMER = 5;
+    private static final int GENRE = 6;
+    private static final int COPYRIGHT = 7;
+    private static final int LICENSE = 8;
+    private static final int CONTACT = 9;
+    private static final int ISRC = 10;
+
+    private static final String[] TAG_NAMES = new String[] {
+            "title", "description", "artist", "album", "tracknumber", "performer",
+            "genre", "copyright", "license", "contact", "isrc"
+    };
+
+    private static final Map<String, Integer> TAG_INDEXES = new HashMap<>(TAG_NAMES.length * 2);
+    private static final String[] NO_STRINGS = new String[0];
+
+    // values longer than this, such as embedded pictures, are rarely shared
+    private static final int MAX_SHARED_LENGTH = 256;
+
+    // weak so that values no longer used by any metadata can be collected and
+    // split by hash so that threads reading metadata rarely wait on each other
+    private static final int DICTIONARY_STRIPES = 32;
+    private static final List<Map<String, WeakReference<String>>> DICTIONARIES =
+            new ArrayList<>(DICTIONARY_STRIPES);
+
+    static {
+        for (int i = 0; i < TAG_NAMES.length; i++) {
+            TAG_INDEXES.put(TAG_NAMES[i], i);
+        }
+
+        for (int i = 0; i < DICTIONARY_STRIPES; i++) {
+            DICTIONARIES.add(new WeakHashMap<String, WeakReference<String>>(16));
+        }
+    }
+
+    private final boolean _isValid;
+    private final long _totalSamples;
+    private final int _channels;
+    private final int _sampleRate;
+    private final int _nominalBitrate;
+
+    // indexed by tag constant, empty if there are none
+    private final String[] _tags;
+
+    // alternating keys and values
+    private final String[] _extraComments;
+
+    /**
+     * Read the metadata of an ogg file.
+     *
+     * <p>Errors are logged and result in metadata with no info.</p>
+     *
+     * @param file  The ogg file.
+     */
+    public static OggMetadata read(File file) {
+
+        VorbisHeaders headers;
+        long lastGranule;
+
+        try {
+            headers = VorbisHeaders.read(file);
+            lastGranule = OggPages.getLastGranule(file);
+
+            // end of file is malformed, read every page instead
+            if (lastGranule < 0) {
+                Log.verbose("Reading all pages of " + file);
+                lastGranule = OggPages.scanLastGranule(file);
+            }
+        } catch (IOException e) {
+            Log.error("Failed to read sound file: " + file, e);
+            return new OggMetadata(null, -1);
+        }
+
+        return new OggMetadata(headers, lastGranule);
+    }
+
+    /**
+     * Read metadata written by {@link #write}.
+     *
+     * @param stream  The stream to read from.
+     *
+     * @throws IOException
+     */
+    static OggMetadata read(DataInputStream stream) throws IOException {
+        return new OggMetadata(stream);
+    }
+
+    private OggMetadata(@Nullable VorbisHeaders headers, long lastGranule) {
+
+        _isValid = headers != null;
+
+        String[] tags = null;
+        List<String> extraComments = new ArrayList<>(0);
+
+        if (headers != null) {
+
+            for (Entry<String, List<String>> entry : headers.getComments().entrySet()) {
+
+                String key = entry.getKey().toLowerCase();
+                String value = share(concat(entry.getValue()));
+                Integer index = TAG_INDEXES.get(key);
+
+                if (index != null) {
+                    if (tags == null)
+                        tags = new String[TAG_NAMES.length];
+
+                    tags[index] = value;
+                }
+                else {
+                    extraComments.add(share(entry.getKey()));
+                    extraComments.add(value);
+                }
+            }
+        }
+
+        _tags = tags != null ? tags : NO_STRINGS;
+        _extraComments = extraComments.isEmpty()
+                ? NO_STRINGS
+                : extraComments.toArray(new String[extraComments.size()]);
+
+        _channels = headers != null ? headers.getChannels() : 0;
+        _sampleRate = headers != null ? headers.getSampleRate() : 0;
+        _nominalBitrate = headers != null ? headers.getNominalBitrate() : 0;
+
+        _totalSamples = Math.max(0, lastGranule);
+    }
+
+    private OggMetadata(DataInputStream stream) throws IOException {
+
+        _isValid = true;
+        _totalSamples = stream.readLong();
+        _channels = stream.readInt();
+        _sampleRate = stream.readInt();
+        _nominalBitrate = stream.readInt();
+
+        String[] tags = null;
+
+        for (int i = 0; i < TAG_NAMES.length; i++) {
+
+            String value = readString(stream);
+            if (value == null)
+                continue;
+
+            if (tags == null)
+                tags = new String[TAG_NAMES.length];
+
+            tags[i] = share(value);
+        }
+
+        _tags = tags != null ? tags : NO_STRINGS;
+
+        int size = stream.readInt();
+        if (size < 0)
+            throw new IOException("Invalid comment count: " + size);
+
+        _extraComments = size == 0 ? NO_STRINGS : new String[size * 2];
+
+        for (int i = 0; i < _extraComments.length; i++) {
+            String value = readString(stream);
+            if (value == null)
+                throw new IOException("Missing comment.");
+
+            _extraComments[i] = share(value);
+        }
+    }
+
+    /**
+     * Determine if the file was read without errors.
+     *
+     * <p>Metadata of files that could not be read has no info.</p>
+     */
+    public boolean isValid() {
+        return _isValid;
+    }
+
+    /**
+     * Get the total duration in seconds of the audio file.
+     */
+    public int getTotalSeconds() {
+        return _sampleRate > 0
+                ? (int) (_totalSamples / _sampleRate)
+                : 0;
+    }
+
+    /**
+     * Get the leftover duration in seconds of the audio file. (after removing minutes).
+     */
+    public int getSeconds() {
+        return getTotalSeconds() % 60;
+    }
+
+    /**
+     * Get the duration in minutes of the audio file.
+     */
+    public int getMinutes() {
+        return getTotalSeconds() / 60;
+    }
+
+    /**
+     * Get the number of samples per channel in the audio file.
+     */
+    public long getTotalSamples() {
+        return _totalSamples;
+    }
+
+    /**
+     * Get the estimated size in bytes of the audio when decoded to
+     * 16 bit PCM samples.
+     */
+    public long getDecodedSize() {
+        return _totalSamples * _channels * 2;
+    }
+
+    /**
+     * Get the number of audio channels.
+     */
+    public int getChannels() {
+        return _channels;
+    }
+
+    /**
+     * Get the sample rate in Hz.
+     */
+    public int getSampleRate() {
+        return _sampleRate;
+    }
+
+    /**
+     * Get the nominal bitrate in bits per second.
+     *
+     * @return  The bitrate or 0 if not specified by the file.
+     */
+    public int getNominalBitrate() {
+        return _nominalBitrate;
+    }
+
+    /**
+     * Get the title comment.
+     *
+     * @return  The title or null if not specified.
+     */
+    @Nullable
+    public String getTitle() {
+        return getTag(TITLE);
+    }
+
+    /**
+     * Get the description comment.
+     *
+     * @return  The description or null if not specified.
+     */
+    @Nullable
+    public String getDescription() {
+        return getTag(DESCRIPTION);
+    }
+
+    /**
+     * Get the artist comment.
+     *
+     * @return  The artist or null if not specified.
+     */
+    @Nullable
+    public String getArtist() {
+        return getTag(ARTIST);
+    }
+
+    /**
+     * Get the album comment.
+     *
+     * @return  The album or null if not specified.
+     */
+    @Nullable
+    public String getAlbum() {
+        return getTag(ALBUM);
+    }
+
+    /**
+     * Get the album track number comment.
+     *
+     * @return  The album track number or null if not specified.
+     */
+    @Nullable
+    public String getTrackNumber() {
+        return getTag(TRACK_NUMBER);
+    }
+
+    /**
+     * Get the performer comment.
+     *
+     * @return  The performer or null if not specified.
+     */
+    @Nullable
+    public String getPerformer() {
+        return getTag(PERFORMER);
+    }
+
+    /**
+     * Get the genre comment.
+     *
+     * @return  The genre or null if not specified.
+     */
+    @Nullable
+    public String getGenre() {
+        return getTag(GENRE);
+    }
+
+    /**
+     * Get the copyright comment.
+     *
+     * @return  The copyright or null if not specified.
+     */
+    @Nullable
+    public String getCopyright() {
+        return getTag(COPYRIGHT);
+    }
+
+    /**
+     * Get the license comment.
+     *
+     * @return  The license or null if not specified.
+     */
+    @Nullable
+    public String getLicense() {
+        return getTag(LICENSE);
+    }
+
+    /**
+     * Get the contact info comment.
+     *
+     * @return  The contact info or null if not specified.
+     */
+    @Nullable
+    public String getContact() {
+        return getTag(CONTACT);
+    }
+
+    /**
+     * Get the ISRC code comment.
+     *
+     * @return  The ISRC or null if not specified.
+     */
+    @Nullable
+    public String getISRC() {
+        return getTag(ISRC);
+    }
+
+    /**
+     * Get all other comments.
+     *
+     * <p>The returned map is keyed to the comment title. Not modifiable.</p>
+     */
+    public Map<String, String> getExtraComments() {
+        return new CommentMap(_extraComments);
+    }
+
+    /**
+     * Write the metadata so it can be read by {@link #read(DataInputStream)}.
+     *
+     * @param stream  The stream to write to.
+     *
+     * @throws IOException
+     */
+    void write(DataOutputStream stream) throws IOException {
+
+        stream.writeLong(_totalSamples);
+        stream.writeInt(_channels);
+        stream.writeInt(_sampleRate);
+        stream.writeInt(_nominalBitrate);
+
+        for (int i = 0; i < TAG_NAMES.length; i++) {
+            writeString(stream, getTag(i));
+        }
+
+        stream.writeInt(_extraComments.length / 2);
+
+        for (String value : _extraComments) {
+            writeString(stream, value);
+        }
+    }
+
+    @Nullable
+    private String getTag(int index) {
+        return _tags.length != 0 ? _tags[index] : null;
+    }
+
+    /*
+     * Get the shared instance of a short string.
+     */
+    private static String share(String value) {
+
+        if (value.length() > MAX_SHARED_LENGTH)
+            return value;
+
+        Map<String, WeakReference<String>> dictionary =
+                DICTIONARIES.get((value.hashCode() & Integer.MAX_VALUE) % DICTIONARY_STRIPES);
+
+        synchronized (dictionary) {
+
+            WeakReference<String> reference = dictionary.get(value);
+            String shared = reference != null ? reference.get() : null;
+            if (shared != null)
+                return shared;
+
+            dictionary.put(value, new WeakReference<>(value));
+            return value;
+        }
+    }
+
+    /*
+     * Strings are written as a UTF-8 byte length followed by the bytes so that
+     * comments are not limited to the 64 KiB of DataOutputStream#writeUTF.
+     * A length of -1 is null.
+     */
+    private static void writeString(DataOutputStream stream, @Nullable String string)
+            throws IOException {
+
+        if (string == null) {
+            stream.writeInt(-1);
+            return;
+        }
+
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        stream.writeInt(bytes.length);
+        stream.write(bytes);
+    }
+
+    @Nullable
+    private static String readString(DataInputStream stream) throws IOException {
+
+        int length = stream.readInt();
+        if (length == -1)
+            return null;
+
+        if (length < 0)
+            throw new IOException("Invalid string length: " + length);
+
+        byte[] bytes = new byte[length];
+        stream.readFully(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String concat(List<String> list) {
+
+        if (list.size() == 1)
+            return list.get(0);
+
+        StringBuilder sb = new StringBuilder(list.size() * 25);
+
+        for (String element : list) {
+            if (sb.length() != 0)
+                sb.append("; ");
+
+            sb.append(element);
+        }
+        return sb.toString();
+    }
+
+    /*
+     * Read only map view of an array of alternating keys and values.
+     */
+    private static class CommentMap extends AbstractMap<String, String> {
+
+        final String[] _pairs;
+
+        CommentMap(String[] pairs) {
+            _pairs = pairs;
+        }
+
+        @Override
+        public int size() {
+            return _pairs.length / 2;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return indexOf(key) != -1;
+        }
+
+        @Override
+        public String get(Object key) {
+            int index = indexOf(key);
+            return index != -1 ? _pairs[index + 1] : null;
+        }
+
+        @Override
+        public Set<Entry<String, String>> entrySet() {
+            return new AbstractSet<Entry<String, String>>() {
+
+                @Override
+                public int size() {
+                    return _pairs.length / 2;
+                }
+
+                @Override
+                public Iterator<Entry<String, String>> iterator() {
+                    return new Iterator<Entry<String, String>>() {
+
+                        int _index;
+
+                        @Override
+                        public boolean hasNext() {
+                            return _index < _pairs.length;
+                        }
+
+                        @Override
+                        public Entry<String, String> next() {
+
+                            if (!hasNext())
+                                throw new NoSuchElementException();
+
+                            Entry<String, String> entry = new SimpleImmutableEntry<>(
+                                    _pairs[_index], _pairs[_index + 1]);
+
+                            _index += 2;
+                            return entry;
+                        }
+
+                        @Override
+                        public void remove() {
+                            throw new UnsupportedOperationException();
+                        }
+                    };
+                }
+            };
+        }
+
+        private int indexOf(Object key) {
+
+            for (int i = 0; i < _pairs.length; i += 2) {
+                if (_pairs[i].equals(key))
+                    return i;
+            }
+            return -1;
+        }
+    }
+}
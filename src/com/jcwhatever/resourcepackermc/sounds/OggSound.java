@@ -26,46 +26,22 @@ package com.jcwhatever.resourcepackermc.sounds;
 
 import com.jcwhatever.resourcepackermc.Utils;
 
-import org.gagravarr.vorbis.VorbisAudioData;
-import org.gagravarr.vorbis.VorbisComments;
-import org.gagravarr.vorbis.VorbisFile;
-
 import java.io.File;
-import java.io.IOException;
-import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import javax.annotation.Nullable;
 
 /**
  * A container for a resource pack ogg file.
+ *
+ * <p>The file metadata is read when first requested or when prefetched by
+ * {@link com.jcwhatever.resourcepackermc.ResourcePackFiles#prefetchMetadata}.
+ * Thread safe. The file is only read once.</p>
  */
 public class OggSound {
 
     private final File _file;
-    private final String _soundPath;
-    private final String _eventName;
-
-    private int _totalSeconds;
-    private int _seconds;
-    private int _minutes;
-
-    private String _title;
-    private String _description;
-    private String _artist;
-    private String _album;
-    private String _trackNumber;
-    private String _performer;
-    private String _genre;
-    private String _copyright;
-    private String _license;
-    private String _contact;
-    private String _isrc;
-
-    private Map<String, String> _extraComments;
 
-    private boolean _hasRead;
+    private volatile OggMetadata _metadata;
 
     /**
      * Constructor.
@@ -74,15 +50,15 @@ public class OggSound {
      */
     public OggSound(File file) {
         _file = file;
-        _soundPath = JSONSounds.getSoundPath(file);
-        _eventName = Utils.getEventName(this);
     }
 
     /**
      * Get the sound path of the file.
+     *
+     * <p>Computed from the file path when requested.</p>
      */
     public String getSoundPath() {
-        return _soundPath;
+        return JSONSounds.getSoundPath(_file);
     }
 
     /**
@@ -94,33 +70,103 @@ public class OggSound {
 
     /**
      * Get the proposed event name for the sound.
+     *
+     * <p>Computed from the file name when requested.</p>
      */
     public String getEventName() {
-        return _eventName;
+        return Utils.getEventName(this);
+    }
+
+    /**
+     * Determine if the file metadata has been read.
+     */
+    public boolean hasMetadata() {
+        return _metadata != null;
+    }
+
+    /**
+     * Get the file metadata, reading the file if it has not been read.
+     */
+    public OggMetadata getMetadata() {
+
+        OggMetadata metadata = _metadata;
+        if (metadata != null)
+            return metadata;
+
+        synchronized (this) {
+
+            if (_metadata == null)
+                _metadata = OggMetadata.read(_file);
+
+            return _metadata;
+        }
+    }
+
+    /*
+     * Set metadata restored from the sound cache.
+     */
+    synchronized void setMetadata(OggMetadata metadata) {
+        if (_metadata == null)
+            _metadata = metadata;
     }
 
     /**
      * Get the total duration in seconds of the audio file.
      */
     public int getTotalSeconds() {
-        read();
-        return _totalSeconds;
+        return getMetadata().getTotalSeconds();
     }
 
     /**
      * Get the leftover duration in seconds of the audio file. (after removing minutes).
      */
     public int getSeconds() {
-        read();
-        return _seconds;
+        return getMetadata().getSeconds();
     }
 
     /**
      * Get the duration in minutes of the audio file.
      */
     public int getMinutes() {
-        read();
-        return _minutes;
+        return getMetadata().getMinutes();
+    }
+
+    /**
+     * Get the number of samples per channel in the audio file.
+     */
+    public long getTotalSamples() {
+        return getMetadata().getTotalSamples();
+    }
+
+    /**
+     * Get the estimated size in bytes of the audio when decoded to
+     * 16 bit PCM samples.
+     */
+    public long getDecodedSize() {
+        return getMetadata().getDecodedSize();
+    }
+
+    /**
+     * Get the number of audio channels.
+     */
+    public int getChannels() {
+        return getMetadata().getChannels();
+    }
+
+    /**
+     * Get the sample rate in Hz.
+     */
+    public int getSampleRate() {
+        return getMetadata().getSampleRate();
+    }
+
+    /**
+     * Get the nominal bitrate in bits per second.
+     *
+     * @return  The bitrate or 0 if not specified by the file.
+     */
+    public int getNominalBitrate() {
+        return getMetadata().getNominalBitrate();
     }
 
     /**
@@ -130,8 +176,7 @@ public class OggSound {
      */
     @Nullable
     public String getTitle() {
-        read();
-        return _title;
+        return getMetadata().getTitle();
     }
 
     /**
@@ -141,8 +186,7 @@ public class OggSound {
      */
     @Nullable
     public String getDescription() {
-        read();
-        return _description;
+        return getMetadata().getDescription();
     }
 
     /**
@@ -152,8 +196,7 @@ public class OggSound {
      */
     @Nullable
     public String getArtist() {
-        read();
-        return _artist;
+        return getMetadata().getArtist();
     }
 
     /**
@@ -163,8 +206,7 @@ public class OggSound {
      */
     @Nullable
     public String getAlbum() {
-        read();
-        return _album;
+        return getMetadata().getAlbum();
     }
 
     /**
@@ -174,8 +216,7 @@ public class OggSound {
      */
     @Nullable
     public String getTrackNumber() {
-        read();
-        return _trackNumber;
+        return getMetadata().getTrackNumber();
     }
 
     /**
@@ -185,8 +226,7 @@ public class OggSound {
      */
     @Nullable
     public String getPerformer() {
-        read();
-        return _performer;
+        return getMetadata().getPerformer();
     }
 
     /**
@@ -196,8 +236,7 @@ public class OggSound {
      */
     @Nullable
     public String getGenre() {
-        read();
-        return _genre;
+        return getMetadata().getGenre();
     }
 
     /**
@@ -207,8 +246,7 @@ public class OggSound {
      */
     @Nullable
     public String getCopyright() {
-        read();
-        return _copyright;
+        return getMetadata().getCopyright();
     }
 
     /**
@@ -218,8 +256,7 @@ public class OggSound {
      */
     @Nullable
     public String getLicense() {
-        read();
-        return _license;
+        return getMetadata().getLicense();
     }
 
     /**
@@ -229,8 +266,7 @@ public class OggSound {
      */
     @Nullable
     public String getContact() {
-        read();
-        return  _contact;
+        return getMetadata().getContact();
     }
 
     /**
@@ -240,124 +276,15 @@ public class OggSound {
      */
     @Nullable
     public String getISRC() {
-        read();
-        return _isrc;
+        return getMetadata().getISRC();
     }
 
     /**
      * Get all other ogg file comments.
      *
-     * <p>The returned map is keyed to the comment title.</p>
+     * <p>The returned map is keyed to the comment title. Not modifiable.</p>
      */
     public Map<String, String> getExtraComments() {
-        read();
-        return _extraComments;
-    }
-
-    /**
-     * Read the file and fill the {@code OggSound} object with info.
-     *
-     * <p>Can be called more than once. Will not run more than once.</p>
-     */
-    private void read() {
-
-        if (_hasRead)
-            return;
-
-        _hasRead = true;
-
-        VorbisFile vorbis;
-        try {
-            vorbis = new VorbisFile(_file);
-        } catch (IOException e) {
-            e.printStackTrace();
-            return;
-        }
-
-        VorbisAudioData vad;
-        long lastGranule = 0;
-
-        try {
-            while((vad = vorbis.getNextAudioPacket()) != null) {
-                lastGranule = vad.getGranulePosition();
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
-            return;
-        }
-
-        VorbisComments vorbisComments = vorbis.getComment();
-        Map<String, List<String>> comments = vorbisComments.getAllComments();
-        _extraComments = new HashMap<>(10);
-
-        for (Entry<String, List<String>> entry : comments.entrySet()) {
-
-            switch (entry.getKey().toLowerCase()) {
-
-                case "title":
-                    _title = concat(entry.getValue());
-                    break;
-
-                case "album":
-                    _album = concat(entry.getValue());
-                    break;
-
-                case "tracknumber":
-                    _trackNumber = concat(entry.getValue());
-                    break;
-
-                case "artist":
-                    _artist = concat(entry.getValue());
-                    break;
-
-                case "performer":
-                    _performer = concat(entry.getValue());
-                    break;
-
-                case "copyright":
-                    _copyright = concat(entry.getValue());
-                    break;
-
-                case "license":
-                    _license = concat(entry.getValue());
-                    break;
-
-                case "description":
-                    _description = concat(entry.getValue());
-                    break;
-
-                case "genre":
-                    _genre = concat(entry.getValue());
-                    break;
-
-                case "contact":
-                    _contact = concat(entry.getValue());
-                    break;
-
-                case "isrc":
-                    _isrc = concat(entry.getValue());
-                    break;
-
-                default:
-                    _extraComments.put(entry.getKey(), concat(entry.getValue()));
-                    break;
-            }
-        }
-
-        _totalSeconds = (int)(lastGranule / vorbis.getInfo().getRate());
-        _minutes = (_totalSeconds / 60);
-        _seconds = _totalSeconds - (_minutes * 60);
-    }
-
-    private String concat(List<String> list) {
-        StringBuilder sb = new StringBuilder(list.size() * 25);
-
-        for (String element : list) {
-            if (sb.length() != 0)
-                sb.append("; ");
-
-            sb.append(element);
-        }
-        return sb.toString();
+        return getMetadata().getExtraComments();
     }
 }
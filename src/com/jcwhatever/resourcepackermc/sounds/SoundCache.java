@@ -0,0 +1,301 @@
+/*
+ * This file is part of ResourcePackerMC for Bukkit, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) JCThePants (www.jcwhatever.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.jcwhatever.resourcepackermc.sounds;
+
+import com.jcwhatever.resourcepackermc.log.Log;
+import com.jcwhatever.resourcepackermc.scanner.ScanManifest;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Persistent cache of the metadata read from sound files.
+ *
+ * <p>Stored in the resource pack folder at {@code .resourcepacker/sounds.bin}.
+ * Entries are keyed by path and are only used while the size and last
+ * modified time of the file match the recorded values, so unchanged sound
+ * files do not need to be opened.</p>
+ *
+ * <p>Thread safe.</p>
+ */
+public class SoundCache {
+
+    public static final String FILE_NAME = "sounds.bin";
+
+    private static final int MAGIC = 0x5250534D; // RPSM
+    private static final int VERSION = 2;
+
+    /**
+     * Get the sound cache file of a resource pack folder.
+     *
+     * @param root  The resource pack root folder.
+     */
+    public static File getFile(File root) {
+        return new File(new File(root, ScanManifest.FOLDER_NAME), FILE_NAME);
+    }
+
+    /**
+     * Load the sound cache of a resource pack folder.
+     *
+     * <p>If the cache does not exist or cannot be read, an empty
+     * cache is returned.</p>
+     *
+     * @param root  The resource pack root folder.
+     */
+    public static SoundCache load(File root) {
+
+        SoundCache cache = new SoundCache(root);
+        File file = getFile(root);
+
+        if (!file.exists())
+            return cache;
+
+        DataInputStream stream = null;
+
+        try {
+            stream = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+
+            if (stream.readInt() != MAGIC || stream.readInt() != VERSION)
+                return cache;
+
+            int size = stream.readInt();
+
+            for (int i = 0; i < size; i++) {
+                String path = stream.readUTF();
+                long fileSize = stream.readLong();
+                long lastModified = stream.readLong();
+                OggMetadata metadata = OggMetadata.read(stream);
+
+                cache._records.put(path, new Record(fileSize, lastModified, metadata));
+            }
+        }
+        catch (IOException e) {
+            Log.error("Failed to read sound cache: " + file, e);
+            return new SoundCache(root);
+        }
+        finally {
+            if (stream != null) {
+                try {
+                    stream.close();
+                } catch (IOException e) {
+                    Log.error("Failed to close sound cache: " + file, e);
+                }
+            }
+        }
+
+        return cache;
+    }
+
+    private final File _root;
+    private final Path _rootPath;
+    private final Map<String, Record> _records = new ConcurrentHashMap<>(100);
+
+    private volatile boolean _isChanged;
+
+    /**
+     * Constructor.
+     *
+     * @param root  The resource pack root folder.
+     */
+    private SoundCache(File root) {
+        _root = root;
+        _rootPath = root.getAbsoluteFile().toPath();
+    }
+
+    /**
+     * Get the number of cached sounds.
+     */
+    public int size() {
+        return _records.size();
+    }
+
+    /**
+     * Remove the entries of files that are not in a collection of sounds.
+     *
+     * @param sounds  The current sounds.
+     *
+     * @return  The number of entries removed.
+     */
+    public int retainAll(Collection<OggSound> sounds) {
+
+        Set<String> found = new HashSet<>(sounds.size() * 2);
+
+        for (OggSound sound : sounds) {
+            found.add(getPath(sound.getFile()));
+        }
+
+        int size = _records.size();
+        _records.keySet().retainAll(found);
+
+        int removed = size - _records.size();
+        if (removed > 0)
+            _isChanged = true;
+
+        return removed;
+    }
+
+    /**
+     * Give a sound its cached metadata.
+     *
+     * <p>A stale entry is removed.</p>
+     *
+     * @param sound         The sound.
+     * @param size          The current size of the sound file.
+     * @param lastModified  The current last modified time of the sound file.
+     *
+     * @return  True if the sound was given cached metadata, otherwise false.
+     */
+    public boolean restore(OggSound sound, long size, long lastModified) {
+
+        String path = getPath(sound.getFile());
+
+        Record record = _records.get(path);
+        if (record == null)
+            return false;
+
+        if (!record.matches(size, lastModified)) {
+            _records.remove(path);
+            _isChanged = true;
+            return false;
+        }
+
+        sound.setMetadata(record._metadata);
+        return true;
+    }
+
+    /**
+     * Record the metadata of a sound.
+     *
+     * <p>Metadata of files that could not be read is not recorded.</p>
+     *
+     * @param sound         The sound. The metadata is read if it has not been.
+     * @param size          The size of the sound file when it was read.
+     * @param lastModified  The last modified time of the sound file when it was read.
+     */
+    public void store(OggSound sound, long size, long lastModified) {
+
+        OggMetadata metadata = sound.getMetadata();
+        if (!metadata.isValid())
+            return;
+
+        _records.put(getPath(sound.getFile()), new Record(size, lastModified, metadata));
+        _isChanged = true;
+    }
+
+    /**
+     * Save the cache into the resource pack folder if it has changed.
+     */
+    public void save() {
+
+        if (!_isChanged)
+            return;
+
+        File file = getFile(_root);
+        File folder = file.getParentFile();
+
+        if (!folder.exists() && !folder.mkdirs()) {
+            Log.error("Failed to create folder: " + folder);
+            return;
+        }
+
+        DataOutputStream stream = null;
+
+        try {
+            stream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+
+            stream.writeInt(MAGIC);
+            stream.writeInt(VERSION);
+            stream.writeInt(_records.size());
+
+            for (Map.Entry<String, Record> entry : _records.entrySet()) {
+                Record record = entry.getValue();
+                stream.writeUTF(entry.getKey());
+                stream.writeLong(record._size);
+                stream.writeLong(record._lastModified);
+                record._metadata.write(stream);
+            }
+
+            _isChanged = false;
+        }
+        catch (IOException e) {
+            Log.error("Failed to write sound cache: " + file, e);
+        }
+        finally {
+            if (stream != null) {
+                try {
+                    stream.close();
+                } catch (IOException e) {
+                    Log.error("Failed to close sound cache: " + file, e);
+                }
+            }
+        }
+    }
+
+    /*
+     * Get the key of a file. Files in the root folder are keyed by their
+     * relative path and files in other folders, such as overlay folders,
+     * by their absolute path.
+     */
+    private String getPath(File file) {
+
+        Path path = file.getAbsoluteFile().toPath();
+        if (!path.startsWith(_rootPath))
+            return path.toString().replace(File.separatorChar, '/');
+
+        return _rootPath.relativize(path).toString().replace(File.separatorChar, '/');
+    }
+
+    /*
+     * A cached sound.
+     */
+    private static class Record {
+
+        final long _size;
+        final long _lastModified;
+        final OggMetadata _metadata;
+
+        Record(long size, long lastModified, OggMetadata metadata) {
+            _size = size;
+            _lastModified = lastModified;
+            _metadata = metadata;
+        }
+
+        boolean matches(long size, long lastModified) {
+            return _size == size && _lastModified == lastModified;
+        }
+    }
+}
@@ -0,0 +1,263 @@
+/*
+ * This file is part of ResourcePackerMC for Bukkit, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) JCThePants (www.jcwhatever.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.jcwhatever.resourcepackermc.sounds;
+
+import com.jcwhatever.resourcepackermc.Utils;
+import com.jcwhatever.resourcepackermc.log.Log;
+import com.jcwhatever.resourcepackermc.log.Progress;
+import com.jcwhatever.resourcepackermc.sounds.ogg.OggTagger;
+import com.jcwhatever.resourcepackermc.sounds.ogg.OggTagger.Result;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import javax.annotation.Nullable;
+
+/**
+ * Changes the comments of many sound files at once.
+ */
+public class SoundTagger {
+
+    private SoundTagger() {}
+
+    /**
+     * Read the comments to set from a CSV file.
+     *
+     * <p>The first row names the columns. The first column is the path of a sound
+     * file and every other column is the name of a comment, i.e.
+     * {@code file,TITLE,ARTIST}. Relative paths are resolved against the root
+     * folders, the last root folder that has the file first. Empty cells leave
+     * the comment unchanged.</p>
+     *
+     * @param csv    The CSV file.
+     * @param roots  The resource pack root folders.
+     *
+     * @return  The comments to set keyed by file.
+     *
+     * @throws IOException
+     */
+    public static Map<File, Map<String, String>> readCsv(File csv, List<File> roots)
+            throws IOException {
+
+        List<List<String>> rows = parseCsv(
+                new String(Files.readAllBytes(csv.toPath()), StandardCharsets.UTF_8));
+
+        Map<File, Map<String, String>> result = new LinkedHashMap<>(rows.size() * 2);
+        if (rows.isEmpty())
+            return result;
+
+        List<String> names = rows.get(0);
+
+        for (int i = 1; i < rows.size(); i++) {
+
+            List<String> row = rows.get(i);
+            if (row.isEmpty() || row.get(0).trim().isEmpty())
+                continue;
+
+            File file = resolve(row.get(0).trim(), roots);
+            if (file == null) {
+                Log.warning("Sound file in " + csv.getName() + " not found: " + row.get(0));
+                continue;
+            }
+
+            Map<String, String> comments = result.get(file);
+            if (comments == null) {
+                comments = new LinkedHashMap<>(names.size() * 2);
+                result.put(file, comments);
+            }
+
+            for (int j = 1; j < row.size() && j < names.size(); j++) {
+
+                String name = names.get(j).trim();
+                String value = row.get(j);
+
+                if (!name.isEmpty() && !value.isEmpty())
+                    comments.put(name, value);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Change the comments of sound files in parallel.
+     *
+     * @param files    The comments to set keyed by file. A null or empty
+     *                 value removes the comment.
+     * @param threads  The number of threads to use.
+     *
+     * @return  The number of files changed.
+     */
+    public static int tag(Map<File, Map<String, String>> files, int threads) {
+
+        List<Callable<Result>> tasks = new ArrayList<>(files.size());
+        long totalBytes = 0;
+
+        for (File file : files.keySet()) {
+            totalBytes += file.length();
+        }
+
+        final Progress progress = new Progress("Tagging", files.size(), totalBytes);
+
+        for (final Entry<File, Map<String, String>> entry : files.entrySet()) {
+            tasks.add(new Callable<Result>() {
+                @Override
+                public Result call() throws Exception {
+                    File file = entry.getKey();
+                    long size = file.length();
+
+                    try {
+                        return OggTagger.tag(file, entry.getValue());
+                    }
+                    catch (IOException e) {
+                        Log.error("Failed to tag sound file: " + file, e);
+                        return null;
+                    }
+                    finally {
+                        progress.add(size);
+                    }
+                }
+            });
+        }
+
+        List<Result> results = Utils.invokeAll(tasks, threads);
+        progress.finish();
+
+        int inPlace = 0;
+        int copied = 0;
+        int unchanged = 0;
+
+        for (Result result : results) {
+            if (result == Result.IN_PLACE)
+                inPlace++;
+            else if (result == Result.COPIED)
+                copied++;
+            else if (result == Result.UNCHANGED)
+                unchanged++;
+        }
+
+        Log.info("Tagged " + (inPlace + copied) + " sound files: " + inPlace + " in place, " +
+                copied + " rewritten, " + unchanged + " unchanged");
+
+        return inPlace + copied;
+    }
+
+    @Nullable
+    private static File resolve(String path, List<File> roots) {
+
+        File file = new File(path);
+        if (file.isAbsolute())
+            return file.isFile() ? file : null;
+
+        for (int i = roots.size() - 1; i >= 0; i--) {
+            file = new File(roots.get(i), path);
+            if (file.isFile())
+                return file;
+        }
+
+        return null;
+    }
+
+    /*
+     * Parse CSV text. Fields may be quoted with '"' and quotes inside
+     * quoted fields are doubled.
+     */
+    private static List<List<String>> parseCsv(String text) {
+
+        List<List<String>> rows = new ArrayList<>(100);
+        List<String> row = new ArrayList<>(10);
+        StringBuilder field = new StringBuilder(50);
+        boolean isQuoted = false;
+        boolean isFieldStart = true;
+
+        for (int i = 0; i < text.length(); i++) {
+
+            char ch = text.charAt(i);
+
+            if (isQuoted) {
+
+                if (ch != '"') {
+                    field.append(ch);
+                }
+                else if (i + 1 < text.length() && text.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                }
+                else {
+                    isQuoted = false;
+                }
+                continue;
+            }
+
+            switch (ch) {
+                case '"':
+                    if (isFieldStart)
+                        isQuoted = true;
+                    else
+                        field.append(ch);
+                    break;
+
+                case ',':
+                    row.add(field.toString());
+                    field.setLength(0);
+                    isFieldStart = true;
+                    continue;
+
+                case '\r':
+                    break;
+
+                case '\n':
+                    row.add(field.toString());
+                    field.setLength(0);
+                    rows.add(row);
+                    row = new ArrayList<>(10);
+                    isFieldStart = true;
+                    continue;
+
+                default:
+                    // byte order mark
+                    if (ch != '\uFEFF' || i != 0)
+                        field.append(ch);
+                    break;
+            }
+
+            isFieldStart = false;
+        }
+
+        if (field.length() > 0 || !row.isEmpty()) {
+            row.add(field.toString());
+            rows.add(row);
+        }
+
+        return rows;
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * This file is part of ResourcePackerMC for Bukkit, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) JCThePants (www.jcwhatever.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.jcwhatever.resourcepackermc.sounds.ogg;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The CRC-32 variant used by Ogg page checksums.
+ *
+ * <p>Uses the polynomial 0x04c11db7 with no bit reflection, an initial
+ * value of 0 and no final XOR, which differs from {@link java.util.zip.CRC32}.</p>
+ */
+public class OggCrc {
+
+    private static final int[] TABLE = new int[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            int crc = i << 24;
+            for (int j = 0; j < 8; j++) {
+                crc = (crc & 0x80000000) != 0
+                        ? (crc << 1) ^ 0x04c11db7
+                        : crc << 1;
+            }
+            TABLE[i] = crc;
+        }
+    }
+
+    private OggCrc() {}
+
+    /**
+     * Update a checksum with bytes from a buffer.
+     *
+     * @param crc     The current checksum. 0 to start a new checksum.
+     * @param buffer  The buffer.
+     * @param offset  The absolute index of the first byte in the buffer.
+     * @param length  The number of bytes.
+     *
+     * @return  The updated checksum.
+     */
+    public static int update(int crc, ByteBuffer buffer, int offset, int length) {
+
+        for (int i = offset, end = offset + length; i < end; i++) {
+            crc = (crc << 8) ^ TABLE[((crc >>> 24) ^ buffer.get(i)) & 0xFF];
+        }
+
+        return crc;
+    }
+
+    /**
+     * Update a checksum with bytes from an array.
+     *
+     * @param crc     The current checksum. 0 to start a new checksum.
+     * @param bytes   The array.
+     * @param offset  The index of the first byte.
+     * @param length  The number of bytes.
+     *
+     * @return  The updated checksum.
+     */
+    public static int update(int crc, byte[] bytes, int offset, int length) {
+
+        for (int i = offset, end = offset + length; i < end; i++) {
+            crc = (crc << 8) ^ TABLE[((crc >>> 24) ^ bytes[i]) & 0xFF];
+        }
+
+        return crc;
+    }
+
+    /**
+     * Update a checksum with zero bytes.
+     *
+     * <p>Used in place of the checksum field of a page header.</p>
+     *
+     * @param crc    The current checksum.
+     * @param count  The number of zero bytes.
+     *
+     * @return  The updated checksum.
+     */
+    public static int updateZeros(int crc, int count) {
+
+        for (int i = 0; i < count; i++) {
+            crc = (crc << 8) ^ TABLE[(crc >>> 24) & 0xFF];
+        }
+
+        return crc;
+    }
+}
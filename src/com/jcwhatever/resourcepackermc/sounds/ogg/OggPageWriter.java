@@ -0,0 +1,202 @@
+/*
+ * This file is part of ResourcePackerMC for Bukkit, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) JCThePants (www.jcwhatever.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.jcwhatever.resourcepackermc.sounds.ogg;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+
+/**
+ * Static helpers for writing packets to Ogg pages.
+ */
+public class OggPageWriter {
+
+    private OggPageWriter() {}
+
+    /**
+     * Get the number of lacing values needed for a packet.
+     *
+     * @param length  The size of the packet.
+     */
+    public static int getSegments(int length) {
+        return length / 255 + 1;
+    }
+
+    /**
+     * Write packets to as few pages as possible.
+     *
+     * <p>The last page finishes the last packet, so the next packet starts
+     * on a new page. Pages that finish a packet have a granule position of 0
+     * and pages that do not have a granule position of -1, as required for
+     * header packets.</p>
+     *
+     * @param output    The stream to write to.
+     * @param serial    The stream serial number.
+     * @param sequence  The sequence number of the first page.
+     * @param flags     The header type flags of the first page.
+     * @param packets   The packets to write.
+     *
+     * @return  The sequence number of the page after the last page written.
+     *
+     * @throws IOException
+     */
+    public static int writePages(OutputStream output, int serial, int sequence,
+                                 int flags, List<byte[]> packets) throws IOException {
+
+        int segments = 0;
+
+        for (byte[] packet : packets) {
+            segments += getSegments(packet.length);
+        }
+
+        return writePages(output, serial, sequence, flags, packets, (segments + 254) / 255);
+    }
+
+    /**
+     * Write packets to an exact number of pages.
+     *
+     * <p>Pages are filled with as many lacing values as possible while
+     * leaving at least one for each remaining page. The total size of the
+     * pages only depends on the number of pages and the packet sizes.</p>
+     *
+     * @param output     The stream to write to.
+     * @param serial     The stream serial number.
+     * @param sequence   The sequence number of the first page.
+     * @param flags      The header type flags of the first page.
+     * @param packets    The packets to write.
+     * @param pageCount  The number of pages to write.
+     *
+     * @return  The sequence number of the page after the last page written.
+     *
+     * @throws IOException if the packets do not fit in the number of pages.
+     */
+    public static int writePages(OutputStream output, int serial, int sequence,
+                                 int flags, List<byte[]> packets, int pageCount) throws IOException {
+
+        int remaining = 0;
+
+        for (byte[] packet : packets) {
+            remaining += getSegments(packet.length);
+        }
+
+        if (pageCount < 1 || remaining < pageCount || remaining > pageCount * 255)
+            throw new IOException("Packets do not fit in " + pageCount + " pages.");
+
+        ByteArrayOutputStream lacing = new ByteArrayOutputStream(255);
+        ByteArrayOutputStream body = new ByteArrayOutputStream(4096);
+        boolean isContinued = false;
+        boolean isPacketEnd = false;
+        int pages = pageCount;
+
+        for (byte[] packet : packets) {
+
+            int offset = 0;
+
+            while (true) {
+
+                int length = Math.min(255, packet.length - offset);
+                lacing.write(length);
+                body.write(packet, offset, length);
+                offset += length;
+                remaining--;
+
+                boolean isLast = length < 255;
+                if (isLast)
+                    isPacketEnd = true;
+
+                // leave at least one lacing value for each of the other pages
+                if (remaining == 0 || lacing.size() == 255 || remaining < pages) {
+
+                    int pageFlags = (isContinued ? OggPages.FLAG_CONTINUED : 0) | flags;
+                    writePage(output, pageFlags, isPacketEnd ? 0 : -1, serial, sequence++,
+                            lacing.toByteArray(), body.toByteArray());
+
+                    flags = 0;
+                    pages--;
+                    isContinued = !isLast;
+                    isPacketEnd = false;
+                    lacing.reset();
+                    body.reset();
+                }
+
+                if (isLast)
+                    break;
+            }
+        }
+
+        return sequence;
+    }
+
+    /**
+     * Write a single page.
+     *
+     * @param output    The stream to write to.
+     * @param flags     The header type flags.
+     * @param granule   The granule position.
+     * @param serial    The stream serial number.
+     * @param sequence  The page sequence number.
+     * @param lacing    The segment table.
+     * @param body      The page data.
+     *
+     * @throws IOException
+     */
+    public static void writePage(OutputStream output, int flags, long granule, int serial,
+                                 int sequence, byte[] lacing, byte[] body) throws IOException {
+
+        ByteBuffer page = ByteBuffer.allocate(OggPages.HEADER_SIZE + lacing.length + body.length);
+        page.order(ByteOrder.LITTLE_ENDIAN);
+
+        page.put((byte) 'O').put((byte) 'g').put((byte) 'g').put((byte) 'S');
+        page.put((byte) 0);
+        page.put((byte) flags);
+        page.putLong(granule);
+        page.putInt(serial);
+        page.putInt(sequence);
+        page.putInt(0);
+        page.put((byte) lacing.length);
+        page.put(lacing);
+        page.put(body);
+
+        page.putInt(OggPages.OFFSET_CRC, OggPages.getChecksum(page, 0, page.capacity()));
+
+        output.write(page.array());
+    }
+
+    /**
+     * Change the sequence number of a complete page and update its checksum.
+     *
+     * @param page      The page.
+     * @param sequence  The new sequence number.
+     */
+    public static void setSequence(byte[] page, int sequence) {
+
+        ByteBuffer buffer = ByteBuffer.wrap(page).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(OggPages.OFFSET_SEQUENCE, sequence);
+        buffer.putInt(OggPages.OFFSET_CRC, OggPages.getChecksum(buffer, 0, page.length));
+    }
+}
@@ -0,0 +1,343 @@
+/*
+ * This file is part of ResourcePackerMC for Bukkit, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) JCThePants (www.jcwhatever.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.jcwhatever.resourcepackermc.sounds.ogg;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import javax.annotation.Nullable;
+
+/**
+ * Static helpers for reading Ogg pages.
+ */
+public class OggPages {
+
+    /**
+     * The size of a page header, not including the segment table.
+     */
+    public static final int HEADER_SIZE = 27;
+
+    /**
+     * The maximum size of a page including the header.
+     */
+    public static final int MAX_PAGE_SIZE = HEADER_SIZE + 255 + 255 * 255;
+
+    public static final int OFFSET_VERSION = 4;
+    public static final int OFFSET_TYPE = 5;
+    public static final int OFFSET_GRANULE = 6;
+    public static final int OFFSET_SERIAL = 14;
+    public static final int OFFSET_SEQUENCE = 18;
+    public static final int OFFSET_CRC = 22;
+    public static final int OFFSET_SEGMENTS = 26;
+
+    // header type flags
+    public static final int FLAG_CONTINUED = 0x01;
+    public static final int FLAG_FIRST = 0x02;
+    public static final int FLAG_LAST = 0x04;
+
+    private static final int TAIL_SIZE = 2 * MAX_PAGE_SIZE;
+    private static final int MAX_TAIL_SIZE = 1024 * 1024;
+    private static final int SCAN_SIZE = 1024 * 1024;
+
+    private OggPages() {}
+
+    /**
+     * Determine if a buffer contains the "OggS" capture pattern at an index.
+     *
+     * @param buffer  The buffer.
+     * @param index   The absolute index.
+     */
+    public static boolean isCapture(ByteBuffer buffer, int index) {
+        return buffer.get(index) == 'O' &&
+                buffer.get(index + 1) == 'g' &&
+                buffer.get(index + 2) == 'g' &&
+                buffer.get(index + 3) == 'S';
+    }
+
+    /**
+     * Get the total size of a page, including the header, whose header
+     * starts at the specified index.
+     *
+     * @param buffer  The buffer. Must contain the complete header and segment table.
+     * @param index   The absolute index of the page.
+     */
+    public static int getPageSize(ByteBuffer buffer, int index) {
+
+        int segments = buffer.get(index + OFFSET_SEGMENTS) & 0xFF;
+        int size = HEADER_SIZE + segments;
+
+        for (int i = 0; i < segments; i++) {
+            size += buffer.get(index + HEADER_SIZE + i) & 0xFF;
+        }
+
+        return size;
+    }
+
+    /**
+     * Compute the checksum of a complete page in a buffer.
+     *
+     * @param buffer  The buffer.
+     * @param index   The absolute index of the page.
+     * @param size    The size of the page.
+     */
+    public static int getChecksum(ByteBuffer buffer, int index, int size) {
+
+        int crc = OggCrc.update(0, buffer, index, OFFSET_CRC);
+        crc = OggCrc.updateZeros(crc, 4);
+        return OggCrc.update(crc, buffer, index + OFFSET_CRC + 4, size - OFFSET_CRC - 4);
+    }
+
+    /**
+     * Determine if a page in a buffer is complete and has a valid checksum.
+     *
+     * @param buffer  The buffer.
+     * @param index   The absolute index of a capture pattern.
+     */
+    public static boolean isValidPage(ByteBuffer buffer, int index) {
+
+        int limit = buffer.limit();
+
+        if (index + HEADER_SIZE > limit || buffer.get(index + OFFSET_VERSION) != 0)
+            return false;
+
+        int segments = buffer.get(index + OFFSET_SEGMENTS) & 0xFF;
+        if (index + HEADER_SIZE + segments > limit)
+            return false;
+
+        int size = getPageSize(buffer, index);
+        if (index + size > limit)
+            return false;
+
+        return getChecksum(buffer, index, size) == buffer.getInt(index + OFFSET_CRC);
+    }
+
+    /**
+     * Get the granule position of the last page of the first logical
+     * stream in an Ogg file.
+     *
+     * <p>Only the end of the file is read. The last complete page with a valid
+     * checksum and a granule position that belongs to the same stream as the
+     * first page of the file is used.</p>
+     *
+     * @param file  The Ogg file.
+     *
+     * @return  The granule position or -1 if the end of the file is malformed.
+     *
+     * @throws IOException
+     */
+    public static long getLastGranule(File file) throws IOException {
+
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+
+        try {
+            FileChannel channel = raf.getChannel();
+            long size = channel.size();
+
+            if (size < HEADER_SIZE)
+                return -1;
+
+            ByteBuffer first = read(channel, 0, HEADER_SIZE);
+            if (!isCapture(first, 0))
+                return -1;
+
+            int serial = first.getInt(OFFSET_SERIAL);
+            int tailSize = TAIL_SIZE;
+
+            while (true) {
+
+                long start = Math.max(0, size - tailSize);
+                ByteBuffer buffer = read(channel, start, (int) (size - start));
+
+                for (int i = buffer.limit() - HEADER_SIZE; i >= 0; i--) {
+
+                    if (!isCapture(buffer, i) ||
+                            buffer.getInt(i + OFFSET_SERIAL) != serial ||
+                            !isValidPage(buffer, i)) {
+                        continue;
+                    }
+
+                    // pages that do not finish a packet have no granule position
+                    long granule = buffer.getLong(i + OFFSET_GRANULE);
+                    if (granule != -1)
+                        return granule;
+                }
+
+                if (start == 0 || tailSize >= MAX_TAIL_SIZE)
+                    return -1;
+
+                tailSize *= 4;
+            }
+        }
+        finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Get the granule position of the last page of the first logical
+     * stream in an Ogg file by reading every page.
+     *
+     * <p>Used when the end of the file is malformed. Invalid data between
+     * pages is skipped. The file is read in blocks into heap buffers rather
+     * than mapped, so the file can be replaced as soon as this returns.</p>
+     *
+     * @param file  The Ogg file.
+     *
+     * @return  The granule position or -1 if no page has one.
+     *
+     * @throws IOException
+     */
+    public static long scanLastGranule(File file) throws IOException {
+
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+
+        try {
+            FileChannel channel = raf.getChannel();
+            long size = channel.size();
+
+            if (size < HEADER_SIZE)
+                return -1;
+
+            ByteBuffer first = read(channel, 0, HEADER_SIZE);
+            if (!isCapture(first, 0))
+                return -1;
+
+            int serial = first.getInt(OFFSET_SERIAL);
+            long base = 0;
+            long result = -1;
+
+            while (true) {
+
+                ByteBuffer buffer = read(channel, base, (int) Math.min(size - base, SCAN_SIZE));
+                int limit = buffer.limit();
+                boolean isLast = base + limit >= size;
+
+                // a page that may not fit in the buffer is read again with the next block
+                int end = isLast ? limit : limit - MAX_PAGE_SIZE;
+                int position = 0;
+
+                while (position < end && position + HEADER_SIZE <= limit) {
+
+                    if (!isCapture(buffer, position) || !isValidPage(buffer, position)) {
+                        position++;
+                        continue;
+                    }
+
+                    long granule = buffer.getLong(position + OFFSET_GRANULE);
+
+                    if (granule != -1 && buffer.getInt(position + OFFSET_SERIAL) == serial)
+                        result = granule;
+
+                    position += getPageSize(buffer, position);
+                }
+
+                if (isLast)
+                    return result;
+
+                base += position;
+            }
+        }
+        finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Read a complete page from a stream.
+     *
+     * @param input  The stream positioned at the start of a page.
+     *
+     * @return  The page or null if the stream is at its end.
+     *
+     * @throws IOException if the page is malformed or truncated.
+     */
+    @Nullable
+    public static byte[] readPage(DataInputStream input) throws IOException {
+
+        byte[] header = new byte[HEADER_SIZE];
+
+        int read = input.read(header);
+        if (read == -1)
+            return null;
+
+        try {
+            if (read < header.length)
+                input.readFully(header, read, header.length - read);
+
+            ByteBuffer buffer = ByteBuffer.wrap(header);
+            if (!isCapture(buffer, 0) || header[OFFSET_VERSION] != 0)
+                throw new IOException("Malformed Ogg page.");
+
+            int segments = header[OFFSET_SEGMENTS] & 0xFF;
+            byte[] table = new byte[segments];
+            input.readFully(table);
+
+            int size = HEADER_SIZE + segments;
+            for (byte lacing : table) {
+                size += lacing & 0xFF;
+            }
+
+            byte[] page = new byte[size];
+            System.arraycopy(header, 0, page, 0, header.length);
+            System.arraycopy(table, 0, page, header.length, segments);
+            input.readFully(page, header.length + segments, size - header.length - segments);
+
+            return page;
+        }
+        catch (EOFException e) {
+            throw new IOException("Truncated Ogg page.", e);
+        }
+    }
+
+    /**
+     * Read part of a file into a little endian heap buffer.
+     *
+     * <p>The buffer is shorter than the length if the end of the file is reached.</p>
+     *
+     * @param channel   The file channel.
+     * @param position  The position in the file to read from.
+     * @param length    The number of bytes to read.
+     *
+     * @throws IOException
+     */
+    static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) == -1)
+                break;
+        }
+
+        buffer.flip();
+        return buffer;
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ * This file is part of ResourcePackerMC for Bukkit, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) JCThePants (www.jcwhatever.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.jcwhatever.resourcepackermc.sounds.ogg;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Losslessly rewrites an Ogg Vorbis file to make it smaller.
+ *
+ * <p>Only the first Vorbis stream is kept. Files with chained Vorbis streams
+ * are not rewritten. Comments with specified keys and
+ * any padding after the comment header are removed and the header packets
+ * are written to new pages. Audio pages are copied unchanged except for
+ * their sequence numbers and checksums.</p>
+ */
+public class OggSlimmer {
+
+    /**
+     * The comment keys removed by default. Embedded cover art and encoder notes.
+     */
+    public static final Set<String> DEFAULT_COMMENTS = Collections.unmodifiableSet(
+            new HashSet<String>(Arrays.asList(
+                    "metadata_block_picture", "coverart", "coverartmime",
+                    "encoder", "encoded_by", "encoder_options")));
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private OggSlimmer() {}
+
+    /**
+     * Write a slimmed copy of an Ogg Vorbis file.
+     *
+     * <p>Files that are not Vorbis, are corrupt or have an unexpected page
+     * layout are not rewritten.</p>
+     *
+     * @param source    The file to read.
+     * @param target    The file to write.
+     * @param comments  The lower case keys of the comments to remove.
+     *
+     * @return  True if the target file was written, false if the source file
+     * could not be rewritten. The target file may be incomplete if false.
+     *
+     * @throws IOException
+     */
+    public static boolean slim(File source, File target, Set<String> comments) throws IOException {
+
+        InputStream input = new BufferedInputStream(new FileInputStream(source), BUFFER_SIZE);
+
+        try {
+            OutputStream output = new BufferedOutputStream(new FileOutputStream(target), BUFFER_SIZE);
+
+            try {
+                return slim(new DataInputStream(input), output, comments);
+            }
+            finally {
+                output.close();
+            }
+        }
+        finally {
+            input.close();
+        }
+    }
+
+    private static boolean slim(DataInputStream input, OutputStream output, Set<String> comments)
+            throws IOException {
+
+        List<byte[]> headers = new ArrayList<>(3);
+        ByteArrayOutputStream packet = new ByteArrayOutputStream(4096);
+        Integer serial = null;
+        int sequence = 0;
+        byte[] page;
+
+        while ((page = OggPages.readPage(input)) != null) {
+
+            ByteBuffer buffer = ByteBuffer.wrap(page).order(ByteOrder.LITTLE_ENDIAN);
+
+            if (OggPages.getChecksum(buffer, 0, page.length) != buffer.getInt(OggPages.OFFSET_CRC))
+                return false;
+
+            int flags = buffer.get(OggPages.OFFSET_TYPE);
+            int pageSerial = buffer.getInt(OggPages.OFFSET_SERIAL);
+
+            if (serial == null) {
+
+                if ((flags & OggPages.FLAG_FIRST) == 0)
+                    return false;
+
+                // other streams before the Vorbis stream are dropped
+                if (!isVorbisIdentification(page))
+                    continue;
+
+                serial = pageSerial;
+            }
+
+            if (pageSerial != serial) {
+
+                // a chained Vorbis stream would be lost
+                if ((flags & OggPages.FLAG_FIRST) != 0 && isVorbisIdentification(page))
+                    return false;
+
+                continue;
+            }
+
+            if (headers.size() == 3) {
+
+                // audio page
+                OggPageWriter.setSequence(page, sequence++);
+                output.write(page);
+                continue;
+            }
+
+            int segments = page[OggPages.OFFSET_SEGMENTS] & 0xFF;
+            int offset = OggPages.HEADER_SIZE + segments;
+
+            for (int i = 0; i < segments; i++) {
+
+                // audio packets must start on a new page
+                if (headers.size() == 3)
+                    return false;
+
+                int lacing = page[OggPages.HEADER_SIZE + i] & 0xFF;
+                packet.write(page, offset, lacing);
+                offset += lacing;
+
+                if (lacing < 255) {
+                    headers.add(packet.toByteArray());
+                    packet.reset();
+                }
+            }
+
+            if (headers.size() == 3) {
+
+                if (packet.size() != 0)
+                    return false;
+
+                byte[] comment = slimComment(headers.get(1), comments);
+                if (comment == null)
+                    return false;
+
+                sequence = OggPageWriter.writePages(output, serial, sequence, OggPages.FLAG_FIRST,
+                        Collections.singletonList(headers.get(0)));
+
+                sequence = OggPageWriter.writePages(output, serial, sequence, 0,
+                        Arrays.asList(comment, headers.get(2)));
+            }
+        }
+
+        return headers.size() == 3;
+    }
+
+    private static boolean isVorbisIdentification(byte[] page) {
+
+        int segments = page[OggPages.OFFSET_SEGMENTS] & 0xFF;
+        int offset = OggPages.HEADER_SIZE + segments;
+
+        return page.length >= offset + 7 &&
+                page[offset] == 1 &&
+                new String(page, offset + 1, 6, StandardCharsets.US_ASCII).equals("vorbis");
+    }
+
+    /*
+     * Rebuild a comment header without the specified comments and without
+     * padding. Returns null if the header is malformed.
+     */
+    private static byte[] slimComment(byte[] packet, Set<String> comments) {
+
+        ByteBuffer input = ByteBuffer.wrap(packet).order(ByteOrder.LITTLE_ENDIAN);
+
+        if (packet.length < 7 || packet[0] != 3)
+            return null;
+
+        try {
+            input.position(7);
+
+            int vendorLength = input.getInt();
+            if (vendorLength < 0 || vendorLength > input.remaining())
+                return null;
+
+            int vendorStart = input.position();
+            input.position(vendorStart + vendorLength);
+
+            int count = input.getInt();
+            if (count < 0)
+                return null;
+
+            ByteBuffer output = ByteBuffer.allocate(packet.length).order(ByteOrder.LITTLE_ENDIAN);
+            output.put(packet, 0, 7);
+            output.putInt(vendorLength);
+            output.put(packet, vendorStart, vendorLength);
+
+            int countPosition = output.position();
+            output.putInt(0);
+
+            int kept = 0;
+
+            for (int i = 0; i < count; i++) {
+
+                int length = input.getInt();
+                if (length < 0 || length > input.remaining())
+                    return null;
+
+                int start = input.position();
+                input.position(start + length);
+
+                String comment = new String(packet, start, length, StandardCharsets.UTF_8);
+                int separator = comment.indexOf('=');
+                String key = separator != -1
+                        ? comment.substring(0, separator).toLowerCase()
+                        : comment.toLowerCase();
+
+                if (comments.contains(key))
+                    continue;
+
+                output.putInt(length);
+                output.put(packet, start, length);
+                kept++;
+            }
+
+            if ((input.get() & 1) == 0)
+                return null;
+
+            output.put((byte) 1);
+            output.putInt(countPosition, kept);
+
+            return Arrays.copyOf(output.array(), output.position());
+        }
+        catch (RuntimeException e) {
+            // BufferUnderflowException from a truncated header
+            return null;
+        }
+    }
+}
@@ -0,0 +1,497 @@
+/*
+ * This file is part of ResourcePackerMC for Bukkit, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) JCThePants (www.jcwhatever.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.jcwhatever.resourcepackermc.sounds.ogg;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Changes the comments of an Ogg Vorbis file.
+ *
+ * <p>If the new comment header fits in the pages used by the current comment
+ * and setup headers, including any padding, only those pages are rewritten in
+ * place and the audio pages are not touched. Otherwise the file is copied
+ * with new header pages and audio pages are renumbered as they are copied.</p>
+ */
+public class OggTagger {
+
+    /**
+     * The result of changing the comments of a file.
+     */
+    public enum Result {
+        /**
+         * The file already had the comments.
+         */
+        UNCHANGED,
+        /**
+         * The header pages were rewritten in place.
+         */
+        IN_PLACE,
+        /**
+         * The file was rewritten.
+         */
+        COPIED
+    }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private OggTagger() {}
+
+    /**
+     * Change the comments of an Ogg Vorbis file.
+     *
+     * @param file      The file.
+     * @param comments  The comment values keyed by comment name. Existing comments
+     *                  with the same case insensitive name are replaced. A null or
+     *                  empty value removes the comment.
+     *
+     * @return  How the file was changed.
+     *
+     * @throws IOException if the file cannot be read, is not an Ogg Vorbis file or
+     * has an unsupported page layout.
+     */
+    public static Result tag(File file, Map<String, String> comments) throws IOException {
+
+        Headers headers = readHeaders(file);
+
+        List<byte[]> current = headers._comments;
+        List<byte[]> changed = applyComments(current, comments);
+
+        if (isEqual(current, changed))
+            return Result.UNCHANGED;
+
+        byte[] comment = getCommentPacket(headers._vendor, changed, 0);
+        byte[] pages = getPagesInPlace(headers, comment);
+
+        if (pages != null) {
+
+            RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            try {
+                raf.seek(headers._identEnd);
+                raf.write(pages);
+            }
+            finally {
+                raf.close();
+            }
+
+            return Result.IN_PLACE;
+        }
+
+        copy(file, headers, comment);
+        return Result.COPIED;
+    }
+
+    /*
+     * Read the header pages of the file.
+     */
+    private static Headers readHeaders(File file) throws IOException {
+
+        DataInputStream input = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE));
+
+        try {
+            Headers headers = new Headers();
+            List<byte[]> packets = new ArrayList<>(3);
+            ByteArrayOutputStream packet = new ByteArrayOutputStream(4096);
+            long offset = 0;
+            int pages = 0;
+
+            while (packets.size() < 3) {
+
+                byte[] page = OggPages.readPage(input);
+                if (page == null)
+                    throw new IOException("Missing Vorbis headers.");
+
+                ByteBuffer buffer = ByteBuffer.wrap(page).order(ByteOrder.LITTLE_ENDIAN);
+
+                if (OggPages.getChecksum(buffer, 0, page.length) != buffer.getInt(OggPages.OFFSET_CRC))
+                    throw new IOException("Checksum mismatch at offset " + offset);
+
+                int serial = buffer.getInt(OggPages.OFFSET_SERIAL);
+                int sequence = buffer.getInt(OggPages.OFFSET_SEQUENCE);
+
+                if (pages == 0) {
+                    headers._serial = serial;
+                }
+                else if (serial != headers._serial) {
+                    throw new IOException("Unsupported page layout, headers are interleaved " +
+                            "with another stream.");
+                }
+                else if (pages == 1) {
+                    headers._firstSequence = sequence;
+                }
+
+                int segments = page[OggPages.OFFSET_SEGMENTS] & 0xFF;
+                int position = OggPages.HEADER_SIZE + segments;
+
+                for (int i = 0; i < segments; i++) {
+
+                    if (packets.size() == 3)
+                        throw new IOException("Unsupported page layout, audio starts on a header page.");
+
+                    int lacing = page[OggPages.HEADER_SIZE + i] & 0xFF;
+                    packet.write(page, position, lacing);
+                    position += lacing;
+
+                    if (lacing < 255) {
+                        packets.add(packet.toByteArray());
+                        packet.reset();
+                    }
+                }
+
+                offset += page.length;
+                pages++;
+
+                // the identification header is alone on the first page
+                if (pages == 1) {
+
+                    if (packets.size() != 1 || packet.size() != 0)
+                        throw new IOException("Unsupported page layout, identification header is not alone.");
+
+                    headers._identEnd = offset;
+                }
+            }
+
+            if (packet.size() != 0)
+                throw new IOException("Unsupported page layout, audio starts on a header page.");
+
+            byte[] ident = packets.get(0);
+            if (ident.length < 7 || ident[0] != 1 ||
+                    !new String(ident, 1, 6, StandardCharsets.US_ASCII).equals("vorbis")) {
+                throw new IOException("Not a Vorbis file.");
+            }
+
+            headers._headerEnd = offset;
+            headers._headerPages = pages - 1;
+            headers._setup = packets.get(2);
+
+            readComments(packets.get(1), headers);
+
+            return headers;
+        }
+        finally {
+            input.close();
+        }
+    }
+
+    /*
+     * Parse the vendor and comments of a comment header.
+     */
+    private static void readComments(byte[] packet, Headers headers) throws IOException {
+
+        if (packet.length < 7 || packet[0] != 3)
+            throw new IOException("Malformed comment header.");
+
+        ByteBuffer buffer = ByteBuffer.wrap(packet).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.position(7);
+
+        try {
+            headers._vendor = readBytes(buffer);
+
+            int count = buffer.getInt();
+            if (count < 0)
+                throw new IOException("Malformed comment header.");
+
+            headers._comments = new ArrayList<>(Math.min(count, 100) + 5);
+
+            for (int i = 0; i < count; i++) {
+                headers._comments.add(readBytes(buffer));
+            }
+        }
+        catch (RuntimeException e) {
+            // BufferUnderflowException from a truncated header
+            throw new IOException("Malformed comment header.", e);
+        }
+    }
+
+    private static byte[] readBytes(ByteBuffer buffer) throws IOException {
+
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining())
+            throw new IOException("Malformed comment header.");
+
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    /*
+     * Get a new list of comments with changes applied.
+     */
+    private static List<byte[]> applyComments(List<byte[]> current, Map<String, String> changes) {
+
+        List<byte[]> result = new ArrayList<>(current);
+
+        for (Entry<String, String> entry : changes.entrySet()) {
+
+            String key = entry.getKey();
+            String value = entry.getValue();
+            byte[] replacement = value != null && !value.isEmpty()
+                    ? (key.toUpperCase() + '=' + value).getBytes(StandardCharsets.UTF_8)
+                    : null;
+
+            int index = -1;
+            Iterator<byte[]> iterator = result.iterator();
+
+            for (int i = 0; iterator.hasNext(); i++) {
+
+                String comment = new String(iterator.next(), StandardCharsets.UTF_8);
+                int separator = comment.indexOf('=');
+                String name = separator != -1 ? comment.substring(0, separator) : comment;
+
+                if (!name.equalsIgnoreCase(key))
+                    continue;
+
+                if (index == -1)
+                    index = i;
+
+                iterator.remove();
+                i--;
+            }
+
+            // replace in the position of the first existing value
+            if (replacement != null)
+                result.add(index != -1 ? index : result.size(), replacement);
+        }
+
+        return result;
+    }
+
+    private static boolean isEqual(List<byte[]> comments1, List<byte[]> comments2) {
+
+        if (comments1.size() != comments2.size())
+            return false;
+
+        for (int i = 0; i < comments1.size(); i++) {
+            if (!Arrays.equals(comments1.get(i), comments2.get(i)))
+                return false;
+        }
+        return true;
+    }
+
+    private static byte[] getCommentPacket(byte[] vendor, List<byte[]> comments, int padding) {
+
+        int size = 7 + 4 + vendor.length + 4 + 1 + padding;
+
+        for (byte[] comment : comments) {
+            size += 4 + comment.length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+
+        buffer.put((byte) 3);
+        buffer.put("vorbis".getBytes(StandardCharsets.US_ASCII));
+        buffer.putInt(vendor.length);
+        buffer.put(vendor);
+        buffer.putInt(comments.size());
+
+        for (byte[] comment : comments) {
+            buffer.putInt(comment.length);
+            buffer.put(comment);
+        }
+
+        // framing bit, followed by zero padding
+        buffer.put((byte) 1);
+
+        return buffer.array();
+    }
+
+    /*
+     * Get new header pages with exactly the same size and number of pages as
+     * the current comment and setup header pages by padding the comment
+     * header. Returns null if the comment header does not fit.
+     */
+    private static byte[] getPagesInPlace(Headers headers, byte[] comment) throws IOException {
+
+        int pages = headers._headerPages;
+        long target = headers._headerEnd - headers._identEnd;
+        int setup = headers._setup.length;
+
+        long padding = target - getPagesSize(pages, comment.length, setup);
+        if (padding < 0)
+            return null;
+
+        // each lacing value needed by the padding takes a byte of the padding
+        while (padding > 0 && getPagesSize(pages, comment.length + padding, setup) > target) {
+            padding--;
+        }
+
+        long segments = OggPageWriter.getSegments((int) (comment.length + padding)) +
+                OggPageWriter.getSegments(setup);
+
+        if (getPagesSize(pages, comment.length + padding, setup) != target ||
+                segments < pages || segments > pages * 255L) {
+            return null;
+        }
+
+        byte[] padded = Arrays.copyOf(comment, (int) (comment.length + padding));
+        ByteArrayOutputStream output = new ByteArrayOutputStream((int) target);
+
+        OggPageWriter.writePages(output, headers._serial, headers._firstSequence, 0,
+                Arrays.asList(padded, headers._setup), pages);
+
+        return output.toByteArray();
+    }
+
+    /*
+     * Get the total size of header pages that hold a comment and setup header.
+     */
+    private static long getPagesSize(int pages, long comment, int setup) {
+        return pages * (long) OggPages.HEADER_SIZE +
+                comment / 255 + 1 + comment +
+                setup / 255 + 1 + setup;
+    }
+
+    /*
+     * Copy the file with new header pages into a temporary file that then
+     * replaces the file.
+     */
+    private static void copy(File file, Headers headers, byte[] comment) throws IOException {
+
+        File temp = File.createTempFile(".tag", ".tmp", file.getAbsoluteFile().getParentFile());
+        boolean isCopied = false;
+
+        try {
+            FileInputStream input = new FileInputStream(file);
+
+            try {
+                OutputStream output = new BufferedOutputStream(new FileOutputStream(temp), BUFFER_SIZE);
+
+                try {
+                    FileChannel channel = input.getChannel();
+                    byte[] ident = new byte[(int) headers._identEnd];
+                    readFully(channel, ByteBuffer.wrap(ident), 0);
+                    output.write(ident);
+
+                    int sequence = OggPageWriter.writePages(output, headers._serial,
+                            headers._firstSequence, 0, Arrays.asList(comment, headers._setup));
+
+                    int shift = sequence - (headers._firstSequence + headers._headerPages);
+
+                    channel.position(headers._headerEnd);
+                    copyPages(new DataInputStream(new BufferedInputStream(input, BUFFER_SIZE)),
+                            output, headers._serial, shift);
+                }
+                finally {
+                    output.close();
+                }
+            }
+            finally {
+                input.close();
+            }
+
+            try {
+                Files.move(temp.toPath(), file.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            isCopied = true;
+        }
+        finally {
+            if (!isCopied)
+                temp.delete();
+        }
+    }
+
+    /*
+     * Copy the remaining pages, shifting the sequence numbers of the
+     * pages in the Vorbis stream.
+     */
+    private static void copyPages(DataInputStream input, OutputStream output,
+                                  int serial, int shift) throws IOException {
+
+        byte[] buffer = new byte[BUFFER_SIZE];
+
+        if (shift == 0) {
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+            return;
+        }
+
+        byte[] page;
+
+        while ((page = OggPages.readPage(input)) != null) {
+
+            ByteBuffer wrapped = ByteBuffer.wrap(page).order(ByteOrder.LITTLE_ENDIAN);
+
+            if (wrapped.getInt(OggPages.OFFSET_SERIAL) == serial) {
+                OggPageWriter.setSequence(page,
+                        wrapped.getInt(OggPages.OFFSET_SEQUENCE) + shift);
+            }
+
+            output.write(page);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position)
+            throws IOException {
+
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read == -1)
+                throw new IOException("Unexpected end of file.");
+        }
+    }
+
+    /*
+     * The header packets and page layout of a file.
+     */
+    private static class Headers {
+        int _serial;
+        int _firstSequence;
+        int _headerPages;
+        long _identEnd;
+        long _headerEnd;
+        byte[] _vendor;
+        List<byte[]> _comments;
+        byte[] _setup;
+    }
+}
@@ -0,0 +1,276 @@
+/*
+ * This file is part of ResourcePackerMC for Bukkit, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) JCThePants (www.jcwhatever.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.jcwhatever.resourcepackermc.sounds.ogg;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Checks the integrity of an Ogg file.
+ *
+ * <p>Every page is checked for a valid checksum, consecutive sequence numbers
+ * within its logical stream and a granule position that does not decrease.
+ * The file is streamed through a fixed size buffer, so files of any size are
+ * checked with the same amount of memory.</p>
+ */
+public class OggVerifier {
+
+    private static final int BUFFER_SIZE = 2 * OggPages.MAX_PAGE_SIZE;
+    private static final int MAX_PROBLEMS = 20;
+
+    /**
+     * Verify an Ogg file.
+     *
+     * @param file  The file to verify.
+     *
+     * @return  A description of each problem found, including the byte offset
+     * of the page. Empty if the file is valid.
+     *
+     * @throws IOException
+     */
+    public static List<String> verify(File file) throws IOException {
+
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+
+        try {
+            OggVerifier verifier = new OggVerifier(raf.getChannel());
+            verifier.verify();
+            return verifier._problems;
+        }
+        finally {
+            raf.close();
+        }
+    }
+
+    private final FileChannel _channel;
+    private final ByteBuffer _buffer;
+    private final Map<Integer, Stream> _streams = new HashMap<>(3);
+    private final List<String> _problems = new ArrayList<>(0);
+
+    private long _bufferOffset;
+    private int _position;
+    private boolean _isEndOfFile;
+
+    private OggVerifier(FileChannel channel) {
+        _channel = channel;
+        _buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        _buffer.order(ByteOrder.LITTLE_ENDIAN);
+        _buffer.limit(0);
+    }
+
+    private void verify() throws IOException {
+
+        int pages = 0;
+
+        while (_problems.size() < MAX_PROBLEMS) {
+
+            if (!ensure(OggPages.HEADER_SIZE)) {
+
+                if (_position < _buffer.limit())
+                    addProblem(getOffset(), "Unexpected data at end of file");
+
+                break;
+            }
+
+            if (!OggPages.isCapture(_buffer, _position) ||
+                    _buffer.get(_position + OggPages.OFFSET_VERSION) != 0) {
+
+                long offset = getOffset();
+
+                if (!resync())
+                    addProblem(offset, "Unexpected data at end of file");
+                else
+                    addProblem(offset, "Skipped " + (getOffset() - offset) + " bytes of invalid data");
+
+                continue;
+            }
+
+            long offset = getOffset();
+            int segments = _buffer.get(_position + OggPages.OFFSET_SEGMENTS) & 0xFF;
+
+            if (!ensure(OggPages.HEADER_SIZE + segments)) {
+                addProblem(offset, "Truncated page");
+                break;
+            }
+
+            int size = OggPages.getPageSize(_buffer, _position);
+
+            if (!ensure(size)) {
+                addProblem(offset, "Truncated page");
+                break;
+            }
+
+            pages++;
+
+            if (OggPages.getChecksum(_buffer, _position, size) !=
+                    _buffer.getInt(_position + OggPages.OFFSET_CRC)) {
+
+                addProblem(offset, "Checksum mismatch");
+                _position += size;
+                continue;
+            }
+
+            checkStream(offset);
+            _position += size;
+        }
+
+        if (_problems.size() >= MAX_PROBLEMS) {
+            _problems.add("Too many problems, stopped checking");
+            return;
+        }
+
+        if (pages == 0)
+            addProblem(0, "No Ogg pages found");
+
+        for (Map.Entry<Integer, Stream> entry : _streams.entrySet()) {
+            if (!entry.getValue()._isEnded) {
+                addProblem(getOffset(), "Stream " + Integer.toHexString(entry.getKey()) +
+                        " has no end of stream page");
+            }
+        }
+    }
+
+    /*
+     * Check the sequence number and granule position of the page at the
+     * current position against the previous page of the same stream.
+     */
+    private void checkStream(long offset) {
+
+        int flags = _buffer.get(_position + OggPages.OFFSET_TYPE);
+        int serial = _buffer.getInt(_position + OggPages.OFFSET_SERIAL);
+        int sequence = _buffer.getInt(_position + OggPages.OFFSET_SEQUENCE);
+        long granule = _buffer.getLong(_position + OggPages.OFFSET_GRANULE);
+
+        Stream stream = _streams.get(serial);
+
+        if (stream == null) {
+
+            if ((flags & OggPages.FLAG_FIRST) == 0)
+                addProblem(offset, "Stream " + Integer.toHexString(serial) + " has no start of stream page");
+
+            stream = new Stream();
+            _streams.put(serial, stream);
+        }
+        else if (stream._isEnded) {
+            addProblem(offset, "Page after end of stream " + Integer.toHexString(serial));
+        }
+        else if (sequence != stream._sequence + 1) {
+            addProblem(offset, "Page sequence " + (sequence & 0xFFFFFFFFL) +
+                    ", expected " + ((stream._sequence + 1) & 0xFFFFFFFFL));
+        }
+
+        // pages that do not finish a packet have no granule position
+        if (granule != -1) {
+
+            if (granule < stream._granule)
+                addProblem(offset, "Granule position " + granule + " is less than " + stream._granule);
+
+            stream._granule = granule;
+        }
+
+        stream._sequence = sequence;
+
+        if ((flags & OggPages.FLAG_LAST) != 0)
+            stream._isEnded = true;
+    }
+
+    /*
+     * Advance to the next capture pattern.
+     *
+     * Returns false if the end of the file was reached first.
+     */
+    private boolean resync() throws IOException {
+
+        _position++;
+
+        while (ensure(4)) {
+
+            if (OggPages.isCapture(_buffer, _position))
+                return true;
+
+            _position++;
+        }
+
+        _position = _buffer.limit();
+        return false;
+    }
+
+    /*
+     * Make sure the buffer contains at least the specified number of bytes
+     * after the current position. Returns false if the end of the file is reached.
+     */
+    private boolean ensure(int count) throws IOException {
+
+        if (_position + count <= _buffer.limit())
+            return true;
+
+        if (_isEndOfFile)
+            return false;
+
+        // move the unread bytes to the start of the buffer and refill
+        _buffer.position(_position);
+        _buffer.compact();
+        _bufferOffset += _position;
+        _position = 0;
+
+        while (_buffer.hasRemaining()) {
+
+            int read = _channel.read(_buffer, _bufferOffset + _buffer.position());
+            if (read == -1) {
+                _isEndOfFile = true;
+                break;
+            }
+        }
+
+        _buffer.flip();
+
+        return count <= _buffer.limit();
+    }
+
+    private long getOffset() {
+        return _bufferOffset + _position;
+    }
+
+    private void addProblem(long offset, String message) {
+        _problems.add("offset " + offset + ": " + message);
+    }
+
+    /*
+     * The state of a logical stream.
+     */
+    private static class Stream {
+        int _sequence;
+        long _granule = -1;
+        boolean _isEnded;
+    }
+}
@@ -0,0 +1,340 @@
+/*
+ * This file is part of ResourcePackerMC for Bukkit, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) JCThePants (www.jcwhatever.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.jcwhatever.resourcepackermc.sounds.ogg;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The identification and comment headers of an Ogg Vorbis file.
+ *
+ * <p>Only the start of the file is read, into a heap buffer, and only the pages
+ * that contain the first two packets of the Vorbis stream are decoded. Packets
+ * that fit in a single page are decoded directly from the buffer. The file is
+ * not memory mapped, so it can be replaced as soon as it has been read.</p>
+ */
+public class VorbisHeaders {
+
+    private static final int INITIAL_READ_SIZE = 64 * 1024;
+
+    private static final int TYPE_IDENTIFICATION = 1;
+    private static final int TYPE_COMMENT = 3;
+
+    /**
+     * Read the headers of an Ogg Vorbis file.
+     *
+     * @param file  The file to read.
+     *
+     * @throws IOException if the file cannot be read or is not an Ogg Vorbis file.
+     */
+    public static VorbisHeaders read(File file) throws IOException {
+
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+
+        try {
+            FileChannel channel = raf.getChannel();
+            long size = channel.size();
+            long readSize = Math.min(size, INITIAL_READ_SIZE);
+
+            while (true) {
+
+                ByteBuffer buffer = OggPages.read(channel, 0, (int) readSize);
+
+                ByteBuffer[] packets = readHeaderPackets(buffer);
+                if (packets != null)
+                    return new VorbisHeaders(packets[0], packets[1]);
+
+                // headers are larger than the region read, usually due to embedded images
+                if (readSize == size)
+                    throw new IOException("Incomplete Vorbis headers.");
+
+                readSize = Math.min(size, Math.min(Integer.MAX_VALUE, readSize * 4));
+            }
+        }
+        finally {
+            raf.close();
+        }
+    }
+
+    private final int _channels;
+    private final int _sampleRate;
+    private final int _maximumBitrate;
+    private final int _nominalBitrate;
+    private final int _minimumBitrate;
+    private final String _vendor;
+    private final Map<String, List<String>> _comments;
+
+    private VorbisHeaders(ByteBuffer identification, ByteBuffer comment) throws IOException {
+
+        // identification header
+        checkHeader(identification, TYPE_IDENTIFICATION);
+
+        if (identification.remaining() < 30)
+            throw new IOException("Malformed Vorbis identification header.");
+
+        _channels = identification.get(11) & 0xFF;
+        _sampleRate = identification.getInt(12);
+        _maximumBitrate = identification.getInt(16);
+        _nominalBitrate = identification.getInt(20);
+        _minimumBitrate = identification.getInt(24);
+
+        // comment header
+        checkHeader(comment, TYPE_COMMENT);
+
+        comment.position(7);
+        _vendor = readString(comment);
+
+        int count = readLength(comment, 4);
+        Map<String, List<String>> comments = new LinkedHashMap<>(Math.max(10, count * 2));
+
+        for (int i = 0; i < count; i++) {
+
+            String entry = readString(comment);
+
+            int index = entry.indexOf('=');
+            if (index == -1)
+                continue;
+
+            String key = entry.substring(0, index).toLowerCase(Locale.ENGLISH);
+
+            List<String> values = comments.get(key);
+            if (values == null) {
+                values = new ArrayList<>(1);
+                comments.put(key, values);
+            }
+            values.add(entry.substring(index + 1));
+        }
+
+        _comments = Collections.unmodifiableMap(comments);
+    }
+
+    /**
+     * Get the number of audio channels.
+     */
+    public int getChannels() {
+        return _channels;
+    }
+
+    /**
+     * Get the sample rate in Hz.
+     */
+    public int getSampleRate() {
+        return _sampleRate;
+    }
+
+    /**
+     * Get the maximum bitrate in bits per second or 0 if not specified.
+     */
+    public int getMaximumBitrate() {
+        return Math.max(0, _maximumBitrate);
+    }
+
+    /**
+     * Get the nominal bitrate in bits per second or 0 if not specified.
+     */
+    public int getNominalBitrate() {
+        return Math.max(0, _nominalBitrate);
+    }
+
+    /**
+     * Get the minimum bitrate in bits per second or 0 if not specified.
+     */
+    public int getMinimumBitrate() {
+        return Math.max(0, _minimumBitrate);
+    }
+
+    /**
+     * Get the encoder vendor string.
+     */
+    public String getVendor() {
+        return _vendor;
+    }
+
+    /**
+     * Get the comments.
+     *
+     * <p>Keyed by lower case comment name. Values are in file order. Not modifiable.</p>
+     */
+    public Map<String, List<String>> getComments() {
+        return _comments;
+    }
+
+    /*
+     * Get the first two packets of the first logical stream, or null if the
+     * buffer ends before they are complete.
+     */
+    private static ByteBuffer[] readHeaderPackets(ByteBuffer buffer) throws IOException {
+
+        ByteBuffer[] packets = new ByteBuffer[2];
+        int count = 0;
+        int limit = buffer.limit();
+        int position = 0;
+        int serial = 0;
+
+        // packet continued from a previous page
+        byte[] partial = null;
+        int partialLength = 0;
+
+        while (count < 2) {
+
+            if (position + OggPages.HEADER_SIZE > limit)
+                return null;
+
+            if (!OggPages.isCapture(buffer, position))
+                throw new IOException("Not an Ogg file or malformed page.");
+
+            int segments = buffer.get(position + OggPages.OFFSET_SEGMENTS) & 0xFF;
+            if (position + OggPages.HEADER_SIZE + segments > limit)
+                return null;
+
+            int pageSize = OggPages.getPageSize(buffer, position);
+            if (position + pageSize > limit)
+                return null;
+
+            int pageSerial = buffer.getInt(position + OggPages.OFFSET_SERIAL);
+
+            if (position == 0) {
+                serial = pageSerial;
+            }
+            else if (pageSerial != serial) {
+                // page of another multiplexed stream
+                position += pageSize;
+                continue;
+            }
+
+            int packetStart = position + OggPages.HEADER_SIZE + segments;
+            int packetLength = 0;
+
+            for (int i = 0; i < segments && count < 2; i++) {
+
+                int lacing = buffer.get(position + OggPages.HEADER_SIZE + i) & 0xFF;
+                packetLength += lacing;
+
+                if (lacing == 255)
+                    continue;
+
+                if (partial != null) {
+                    partial = append(partial, partialLength, buffer, packetStart, packetLength);
+                    partialLength += packetLength;
+
+                    packets[count++] = ByteBuffer.wrap(partial, 0, partialLength)
+                            .slice().order(ByteOrder.LITTLE_ENDIAN);
+                    partial = null;
+                    partialLength = 0;
+                }
+                else {
+                    packets[count++] = slice(buffer, packetStart, packetLength);
+                }
+
+                packetStart += packetLength;
+                packetLength = 0;
+            }
+
+            // packet continues on the next page
+            if (count < 2 && packetLength > 0) {
+
+                if (partial == null)
+                    partial = new byte[Math.max(packetLength * 2, 4096)];
+
+                partial = append(partial, partialLength, buffer, packetStart, packetLength);
+                partialLength += packetLength;
+            }
+
+            position += pageSize;
+        }
+
+        return packets;
+    }
+
+    private static byte[] append(byte[] array, int length,
+                                 ByteBuffer buffer, int start, int count) {
+
+        if (length + count > array.length)
+            array = Arrays.copyOf(array, Math.max(array.length * 2, length + count));
+
+        for (int i = 0; i < count; i++) {
+            array[length + i] = buffer.get(start + i);
+        }
+
+        return array;
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int start, int length) {
+
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position(start);
+        duplicate.limit(start + length);
+
+        return duplicate.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static void checkHeader(ByteBuffer packet, int type) throws IOException {
+
+        if (packet.remaining() < 7 ||
+                packet.get(0) != type ||
+                packet.get(1) != 'v' ||
+                packet.get(2) != 'o' ||
+                packet.get(3) != 'r' ||
+                packet.get(4) != 'b' ||
+                packet.get(5) != 'i' ||
+                packet.get(6) != 's') {
+            throw new IOException("Not a Vorbis stream or malformed header.");
+        }
+    }
+
+    private static int readLength(ByteBuffer buffer, int minSize) throws IOException {
+
+        if (buffer.remaining() < 4)
+            throw new IOException("Malformed Vorbis comment header.");
+
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining() / minSize)
+            throw new IOException("Malformed Vorbis comment header.");
+
+        return length;
+    }
+
+    private static String readString(ByteBuffer buffer) throws IOException {
+
+        int length = readLength(buffer, 1);
+
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
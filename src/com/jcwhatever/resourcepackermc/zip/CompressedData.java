@@ -0,0 +1,217 @@
+/*
+ * This file is part of ResourcePackerMC for Bukkit, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) JCThePants (www.jcwhatever.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.jcwhatever.resourcepackermc.zip;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * The compressed data of a zip entry, ready to be written by a {@link PackZipWriter}.
+ */
+public class CompressedData {
+
+    // the initial size of the buffer compressed data is written to
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Compress data.
+     *
+     * <p>The compressed data is written to a buffer that grows as needed, up to
+     * the size of the uncompressed data. If compressing does not make the data
+     * smaller, compressing stops and the data is stored uncompressed.</p>
+     *
+     * @param raw    The uncompressed data.
+     * @param level  The deflate compression level.
+     */
+    public static CompressedData compress(byte[] raw, int level) {
+
+        CRC32 crc = new CRC32();
+        crc.update(raw, 0, raw.length);
+
+        Deflater deflater = new Deflater(level, true);
+        try {
+            deflater.setInput(raw, 0, raw.length);
+            deflater.finish();
+
+            byte[] buffer = new byte[Math.min(raw.length, INITIAL_BUFFER_SIZE)];
+            int length = 0;
+
+            while (!deflater.finished() && length < raw.length) {
+
+                if (length == buffer.length)
+                    buffer = Arrays.copyOf(buffer, (int) Math.min(raw.length, buffer.length * 2L));
+
+                length += deflater.deflate(buffer, length, buffer.length - length);
+            }
+
+            if (!deflater.finished() || length >= raw.length) {
+                return new CompressedData(raw, raw.length, PackZipWriter.METHOD_STORED,
+                        crc.getValue(), raw.length);
+            }
+
+            return new CompressedData(buffer, length, PackZipWriter.METHOD_DEFLATED,
+                    crc.getValue(), raw.length);
+        }
+        finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Get the CRC-32 of a file's contents.
+     *
+     * @param file  The file.
+     *
+     * @throws IOException
+     */
+    public static long getCrc(File file) throws IOException {
+
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[64 * 1024];
+
+        InputStream stream = new FileInputStream(file);
+        try {
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                crc.update(buffer, 0, read);
+            }
+        }
+        finally {
+            stream.close();
+        }
+
+        return crc.getValue();
+    }
+
+    /**
+     * Store data without compressing it.
+     *
+     * @param raw  The uncompressed data.
+     */
+    public static CompressedData store(byte[] raw) {
+
+        CRC32 crc = new CRC32();
+        crc.update(raw, 0, raw.length);
+
+        return new CompressedData(raw, raw.length, PackZipWriter.METHOD_STORED,
+                crc.getValue(), raw.length);
+    }
+
+    /**
+     * Read the contents of a file to compress.
+     *
+     * @param file  The file.
+     *
+     * @throws IOException  If the file cannot be read or is too large to pack.
+     */
+    public static byte[] readFile(File file) throws IOException {
+
+        long size = file.length();
+        if (size > Integer.MAX_VALUE - 8)
+            throw new IOException("File is too large to pack: " + file);
+
+        byte[] data = new byte[(int) size];
+        int length = 0;
+
+        InputStream stream = new FileInputStream(file);
+        try {
+            int read;
+            while (length < data.length && (read = stream.read(data, length, data.length - length)) != -1) {
+                length += read;
+            }
+        }
+        finally {
+            stream.close();
+        }
+
+        // file changed size while reading
+        return length == data.length ? data : Arrays.copyOf(data, length);
+    }
+
+    private final byte[] _data;
+    private final int _length;
+    private final int _method;
+    private final long _crc;
+    private final long _size;
+
+    /**
+     * Constructor.
+     *
+     * @param data    The buffer containing the compressed data.
+     * @param length  The number of bytes of compressed data in the buffer.
+     * @param method  The compression method.
+     * @param crc     The CRC-32 of the uncompressed data.
+     * @param size    The size of the uncompressed data.
+     */
+    public CompressedData(byte[] data, int length, int method, long crc, long size) {
+        _data = data;
+        _length = length;
+        _method = method;
+        _crc = crc;
+        _size = size;
+    }
+
+    /**
+     * Get the buffer containing the compressed data.
+     *
+     * <p>The buffer may be larger than the data.</p>
+     */
+    public byte[] getData() {
+        return _data;
+    }
+
+    /**
+     * Get the number of bytes of compressed data.
+     */
+    public int getLength() {
+        return _length;
+    }
+
+    /**
+     * Get the compression method.
+     */
+    public int getMethod() {
+        return _method;
+    }
+
+    /**
+     * Get the CRC-32 of the uncompressed data.
+     */
+    public long getCrc() {
+        return _crc;
+    }
+
+    /**
+     * Get the size of the uncompressed data.
+     */
+    public long getSize() {
+        return _size;
+    }
+}
@@ -0,0 +1,427 @@
+/*
+ * This file is part of ResourcePackerMC for Bukkit, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) JCThePants (www.jcwhatever.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.jcwhatever.resourcepackermc.zip;
+
+import com.jcwhatever.resourcepackermc.log.Log;
+import com.jcwhatever.resourcepackermc.log.Progress;
+import com.jcwhatever.resourcepackermc.scanner.PackIgnore;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.zip.Deflater;
+import javax.annotation.Nullable;
+
+/**
+ * Rules that decide how each zip entry is compressed.
+ *
+ * <p>Rules are read from a {@code .packcompress} file in each resource pack root
+ * folder, one rule per line:</p>
+ *
+ * <pre>
+ * # pattern  method  [level]  [size limits]
+ * *.ogg              store
+ * *.png              adaptive
+ * textures/gui/**    deflate  9
+ * *.json             store    &lt;1k
+ * </pre>
+ *
+ * <ul>
+ *     <li>Patterns use the {@code .packignore} glob syntax. A pattern containing a
+ *     {@code /} is matched against the path relative to the root folder, otherwise
+ *     it is matched against the file name.</li>
+ *     <li>The method is {@code store}, {@code deflate} or {@code adaptive}. Adaptive
+ *     entries are deflated unless a trial compression of the start of the file saves
+ *     too little.</li>
+ *     <li>An optional deflate level from 0 to 9.</li>
+ *     <li>Optional size limits, {@code >size} and {@code <size}, with an optional
+ *     {@code k}, {@code m} or {@code g} suffix.</li>
+ * </ul>
+ *
+ * <p>The last matching rule wins. The {@link #DEFAULT_RULES} are applied before the
+ * rules in the files, the rules of overlay root folders after the rules of the folders
+ * they overlay, and entries that no rule matches are deflated.</p>
+ *
+ * <p>Thread safe. Statistics of the entries that were stored are kept so that the
+ * CPU time saved and the bytes lost by not compressing them can be reported.</p>
+ */
+public class CompressionPolicy {
+
+    public static final String FILE_NAME = ".packcompress";
+
+    /**
+     * Rules applied before the rules in the {@code .packcompress} file.
+     *
+     * <p>Ogg Vorbis audio is already compressed. PNG images usually are,
+     * but not always.</p>
+     */
+    public static final List<String> DEFAULT_RULES = Collections.unmodifiableList(
+            Arrays.asList("*.ogg store", "*.png adaptive"));
+
+    /**
+     * The number of bytes at the start of a file that are trial compressed.
+     */
+    public static final int TRIAL_SIZE = 16 * 1024;
+
+    /**
+     * The fraction of a trial that must be saved for an adaptive entry to be deflated.
+     */
+    public static final double MIN_SAVING = 0.05;
+
+    /**
+     * The compression methods of a rule.
+     */
+    public enum Method {
+        STORE,
+        DEFLATE,
+        ADAPTIVE
+    }
+
+    /**
+     * Load and merge the rules from the {@code .packcompress} files of resource
+     * pack root folders.
+     *
+     * <p>The rules of each folder are added in order, so the rules of later
+     * folders, such as overlay folders, win over the rules of earlier folders.</p>
+     *
+     * @param roots  The resource pack root folders in overlay order.
+     *
+     * @return  The policy. Only has the default rules if none of the files exist.
+     */
+    public static CompressionPolicy load(List<File> roots) {
+
+        List<String> lines = new ArrayList<>(20);
+
+        for (File root : roots) {
+
+            File file = new File(root, FILE_NAME);
+            if (!file.isFile())
+                continue;
+
+            try {
+                lines.addAll(Files.readAllLines(file.toPath(), StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                Log.error("Failed to read " + FILE_NAME + " file: " + file, e);
+            }
+        }
+
+        return new CompressionPolicy(lines);
+    }
+
+    private final List<Rule> _rules = new ArrayList<>(10);
+    private final AtomicLong _deflated = new AtomicLong();
+    private final AtomicLong _stored = new AtomicLong();
+    private final AtomicLong _storedBytes = new AtomicLong();
+    private final AtomicLong _savedNanos = new AtomicLong();
+    private final AtomicLong _lostBytes = new AtomicLong();
+
+    /**
+     * Constructor.
+     *
+     * @param lines  The lines of a {@code .packcompress} file.
+     */
+    public CompressionPolicy(List<String> lines) {
+
+        for (String line : DEFAULT_RULES) {
+            _rules.add(Rule.parse(line));
+        }
+
+        for (String line : lines) {
+            try {
+                Rule rule = Rule.parse(line);
+                if (rule != null)
+                    _rules.add(rule);
+            }
+            catch (IllegalArgumentException e) {
+                Log.warning("Invalid " + FILE_NAME + " rule, " + e.getMessage() + ": " + line);
+            }
+        }
+    }
+
+    /**
+     * Get the compression method of an entry.
+     *
+     * @param path  The '/' separated path of the entry.
+     * @param size  The size of the file in bytes.
+     */
+    public Method getMethod(String path, long size) {
+        return getRule(path, size)._method;
+    }
+
+    /**
+     * Determine if data compressed with a zip method can be used for an entry.
+     *
+     * <p>Entries matched by a {@code store} or {@code deflate} rule must use the method
+     * of the rule. Entries matched by an {@code adaptive} rule or by no rule may be
+     * stored or deflated.</p>
+     *
+     * @param path    The '/' separated path of the entry.
+     * @param size    The size of the file in bytes.
+     * @param method  The zip method, {@link PackZipWriter#METHOD_STORED} or
+     *                {@link PackZipWriter#METHOD_DEFLATED}.
+     */
+    public boolean isMethodAllowed(String path, long size, int method) {
+
+        Rule rule = getRule(path, size);
+
+        if (rule == Rule.DEFAULT)
+            return true;
+
+        switch (rule._method) {
+            case STORE:
+                return method == PackZipWriter.METHOD_STORED;
+            case DEFLATE:
+                return method == PackZipWriter.METHOD_DEFLATED;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Get the text of the rules, used to detect a change of policy.
+     */
+    public String getRules() {
+
+        StringBuilder sb = new StringBuilder(100);
+
+        for (Rule rule : _rules) {
+            sb.append(rule._line).append('\n');
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Read and compress a file using the rule that matches its path.
+     *
+     * @param path  The '/' separated path of the entry.
+     * @param file  The file to compress.
+     *
+     * @throws IOException
+     */
+    public CompressedData compress(String path, File file) throws IOException {
+
+        byte[] raw = CompressedData.readFile(file);
+        Rule rule = getRule(path, raw.length);
+
+        if (rule._method == Method.DEFLATE)
+            return deflate(raw, rule._level);
+
+        int trialSize = Math.min(raw.length, TRIAL_SIZE);
+        long start = System.nanoTime();
+        int compressedSize = deflateSize(raw, trialSize, rule._level);
+        long nanos = System.nanoTime() - start;
+
+        if (rule._method == Method.ADAPTIVE &&
+                trialSize - compressedSize >= trialSize * MIN_SAVING) {
+            return deflate(raw, rule._level);
+        }
+
+        // estimate what deflating the whole file would have cost and saved
+        if (trialSize > 0) {
+            double scale = raw.length / (double) trialSize;
+            _savedNanos.addAndGet((long) (nanos * scale));
+            _lostBytes.addAndGet(Math.max(0, (long) ((trialSize - compressedSize) * scale)));
+        }
+
+        _stored.incrementAndGet();
+        _storedBytes.addAndGet(raw.length);
+
+        return CompressedData.store(raw);
+    }
+
+    /**
+     * Log the number of entries stored and the estimated CPU time saved and
+     * bytes lost by not compressing them.
+     */
+    public void printReport() {
+
+        Log.info("Compression: " + _deflated.get() + " entries deflated, " + _stored.get() +
+                " stored (" + Progress.formatBytes(_storedBytes.get()) + "), saved about " +
+                Progress.formatTime(_savedNanos.get() / 1000000) + " of CPU time for about " +
+                Progress.formatBytes(_lostBytes.get()) + " larger");
+    }
+
+    private CompressedData deflate(byte[] raw, int level) {
+
+        CompressedData data = CompressedData.compress(raw, level);
+
+        // data that deflate did not make smaller is stored anyway
+        if (data.getMethod() == PackZipWriter.METHOD_DEFLATED) {
+            _deflated.incrementAndGet();
+        }
+        else {
+            _stored.incrementAndGet();
+            _storedBytes.addAndGet(raw.length);
+        }
+
+        return data;
+    }
+
+    private Rule getRule(String path, long size) {
+
+        String name = path.substring(path.lastIndexOf('/') + 1);
+
+        for (int i = _rules.size() - 1; i >= 0; i--) {
+
+            Rule rule = _rules.get(i);
+
+            if (size <= rule._minSize || size >= rule._maxSize)
+                continue;
+
+            if (rule._pattern.matcher(rule._isAnchored ? path : name).matches())
+                return rule;
+        }
+
+        return Rule.DEFAULT;
+    }
+
+    /*
+     * Get the size of the start of the data when deflated.
+     */
+    private static int deflateSize(byte[] data, int length, int level) {
+
+        Deflater deflater = new Deflater(level, true);
+        try {
+            deflater.setInput(data, 0, length);
+            deflater.finish();
+
+            byte[] buffer = new byte[4096];
+            int size = 0;
+
+            while (!deflater.finished()) {
+                size += deflater.deflate(buffer);
+            }
+
+            return size;
+        }
+        finally {
+            deflater.end();
+        }
+    }
+
+    /*
+     * A single parsed rule.
+     */
+    private static class Rule {
+
+        static final Rule DEFAULT = new Rule("*", Pattern.compile(".*"), false, Method.DEFLATE,
+                Deflater.DEFAULT_COMPRESSION, -1, Long.MAX_VALUE);
+
+        final String _line;
+        final Pattern _pattern;
+        final boolean _isAnchored;
+        final Method _method;
+        final int _level;
+        final long _minSize;
+        final long _maxSize;
+
+        Rule(String line, Pattern pattern, boolean isAnchored, Method method,
+             int level, long minSize, long maxSize) {
+            _line = line;
+            _pattern = pattern;
+            _isAnchored = isAnchored;
+            _method = method;
+            _level = level;
+            _minSize = minSize;
+            _maxSize = maxSize;
+        }
+
+        @Nullable
+        static Rule parse(String line) {
+
+            line = line.trim();
+
+            if (line.isEmpty() || line.startsWith("#"))
+                return null;
+
+            String[] tokens = line.split("\\s+");
+            if (tokens.length < 2)
+                throw new IllegalArgumentException("missing method");
+
+            String glob = tokens[0];
+            boolean isAnchored = glob.indexOf('/') != -1;
+            if (glob.startsWith("/"))
+                glob = glob.substring(1);
+
+            Method method;
+            try {
+                method = Method.valueOf(tokens[1].toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("unknown method " + tokens[1]);
+            }
+
+            int level = Deflater.DEFAULT_COMPRESSION;
+            long minSize = -1;
+            long maxSize = Long.MAX_VALUE;
+
+            for (int i = 2; i < tokens.length; i++) {
+
+                String token = tokens[i];
+
+                if (token.startsWith(">"))
+                    minSize = parseSize(token.substring(1));
+                else if (token.startsWith("<"))
+                    maxSize = parseSize(token.substring(1));
+                else if (token.matches("[0-9]"))
+                    level = Integer.parseInt(token);
+                else
+                    throw new IllegalArgumentException("unknown option " + token);
+            }
+
+            return new Rule(line, Pattern.compile(PackIgnore.toRegex(glob)), isAnchored,
+                    method, level, minSize, maxSize);
+        }
+
+        static long parseSize(String size) {
+
+            long multiplier = 1;
+            String lower = size.toLowerCase();
+
+            if (lower.endsWith("k"))
+                multiplier = 1024;
+            else if (lower.endsWith("m"))
+                multiplier = 1024 * 1024;
+            else if (lower.endsWith("g"))
+                multiplier = 1024 * 1024 * 1024;
+
+            if (multiplier != 1)
+                lower = lower.substring(0, lower.length() - 1);
+
+            try {
+                return Long.parseLong(lower) * multiplier;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("invalid size " + size);
+            }
+        }
+    }
+}
@@ -0,0 +1,299 @@
+/*
+ * This file is part of ResourcePackerMC for Bukkit, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) JCThePants (www.jcwhatever.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.jcwhatever.resourcepackermc.zip;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Reads the central directory of an existing zip archive and the
+ * compressed data of its entries.
+ *
+ * <p>Used to copy the compressed data of unchanged entries into a new archive
+ * without inflating and deflating them again. Entry data is read with
+ * positional reads, so data can be read from several threads at once.</p>
+ */
+public class PackZipReader implements Closeable {
+
+    private static final int LOCAL_HEADER = 0x04034b50;
+    private static final int CENTRAL_HEADER = 0x02014b50;
+    private static final int END_OF_CENTRAL = 0x06054b50;
+    private static final int ZIP64_END_OF_CENTRAL = 0x06064b50;
+    private static final int ZIP64_LOCATOR = 0x07064b50;
+
+    private static final int LOCAL_HEADER_SIZE = 30;
+    private static final int CENTRAL_HEADER_SIZE = 46;
+    private static final int END_OF_CENTRAL_SIZE = 22;
+    private static final int MAX_COMMENT = 0xFFFF;
+    private static final long MAX_32 = 0xFFFFFFFFL;
+
+    private final File _file;
+    private final RandomAccessFile _raf;
+    private final FileChannel _channel;
+    private final Map<String, ZipRecord> _records;
+
+    /**
+     * Constructor.
+     *
+     * <p>Reads the central directory.</p>
+     *
+     * @param file  The zip archive.
+     *
+     * @throws IOException  If the file cannot be read or is not a valid zip archive.
+     */
+    public PackZipReader(File file) throws IOException {
+        _file = file;
+        _raf = new RandomAccessFile(file, "r");
+        _channel = _raf.getChannel();
+
+        try {
+            _records = readCentralDirectory();
+        }
+        catch (IOException e) {
+            _raf.close();
+            throw e;
+        }
+        catch (RuntimeException e) {
+            // a malformed archive that was not caught by the checks
+            _raf.close();
+            throw new IOException("Invalid zip file: " + file, e);
+        }
+    }
+
+    /**
+     * Get the zip archive file.
+     */
+    public File getFile() {
+        return _file;
+    }
+
+    /**
+     * Get the record of an entry.
+     *
+     * @param name  The entry name.
+     *
+     * @return  The record or null if the archive does not have the entry.
+     */
+    @Nullable
+    public ZipRecord getRecord(String name) {
+        return _records.get(name);
+    }
+
+    /**
+     * Get the number of entries in the archive.
+     */
+    public int size() {
+        return _records.size();
+    }
+
+    /**
+     * Read the compressed data of an entry.
+     *
+     * <p>Thread safe.</p>
+     *
+     * @param record  The record of the entry.
+     *
+     * @throws IOException
+     */
+    public CompressedData readData(ZipRecord record) throws IOException {
+
+        if (record.getCompressedSize() > Integer.MAX_VALUE - 8)
+            throw new IOException("Entry is too large: " + record.getName());
+
+        if (record.getCompressedSize() < 0 || record.getOffset() < 0)
+            throw new IOException("Invalid entry: " + record.getName());
+
+        ByteBuffer header = read(record.getOffset(), LOCAL_HEADER_SIZE);
+        if (header.getInt(0) != LOCAL_HEADER)
+            throw new IOException("Invalid local header: " + record.getName());
+
+        long dataOffset = record.getOffset() + LOCAL_HEADER_SIZE +
+                getShort(header, 26) + getShort(header, 28);
+
+        ByteBuffer data = read(dataOffset, (int) record.getCompressedSize());
+
+        return new CompressedData(data.array(), data.limit(), record.getMethod(),
+                record.getCrc(), record.getSize());
+    }
+
+    @Override
+    public void close() throws IOException {
+        _raf.close();
+    }
+
+    private Map<String, ZipRecord> readCentralDirectory() throws IOException {
+
+        long length = _channel.size();
+        if (length < END_OF_CENTRAL_SIZE)
+            throw new IOException("Not a zip file.");
+
+        // the end record is followed by a comment of up to 64 KiB
+        int tailSize = (int) Math.min(length, END_OF_CENTRAL_SIZE + MAX_COMMENT);
+        long tailOffset = length - tailSize;
+        ByteBuffer tail = read(tailOffset, tailSize);
+
+        int end = -1;
+        for (int i = tailSize - END_OF_CENTRAL_SIZE; i >= 0; i--) {
+            if (tail.getInt(i) == END_OF_CENTRAL) {
+                end = i;
+                break;
+            }
+        }
+
+        if (end == -1)
+            throw new IOException("End of central directory not found.");
+
+        long count = getShort(tail, end + 10);
+        long centralSize = getInt(tail, end + 12);
+        long centralOffset = getInt(tail, end + 16);
+
+        long locatorOffset = tailOffset + end - 20;
+        if (locatorOffset >= 0) {
+
+            ByteBuffer locator = read(locatorOffset, 20);
+            if (locator.getInt(0) == ZIP64_LOCATOR) {
+
+                ByteBuffer zip64 = read(locator.getLong(8), 56);
+                if (zip64.getInt(0) != ZIP64_END_OF_CENTRAL)
+                    throw new IOException("Invalid ZIP64 end of central directory.");
+
+                count = zip64.getLong(32);
+                centralSize = zip64.getLong(40);
+                centralOffset = zip64.getLong(48);
+            }
+        }
+
+        if (count < 0 || centralSize < 0 || centralOffset < 0 ||
+                centralSize > Integer.MAX_VALUE || centralOffset + centralSize > length) {
+            throw new IOException("Invalid central directory.");
+        }
+
+        ByteBuffer central = read(centralOffset, (int) centralSize);
+        Map<String, ZipRecord> records = new HashMap<>((int) Math.min(count * 2, 1 << 20));
+        int pos = 0;
+
+        for (long i = 0; i < count; i++) {
+
+            if (pos + CENTRAL_HEADER_SIZE > central.limit() || central.getInt(pos) != CENTRAL_HEADER)
+                throw new IOException("Invalid central directory entry.");
+
+            int flags = getShort(central, pos + 8);
+            int method = getShort(central, pos + 10);
+            int dosTime = central.getInt(pos + 12);
+            long crc = getInt(central, pos + 16);
+            long compressedSize = getInt(central, pos + 20);
+            long size = getInt(central, pos + 24);
+            int nameLength = getShort(central, pos + 28);
+            int extraLength = getShort(central, pos + 30);
+            int commentLength = getShort(central, pos + 32);
+            long offset = getInt(central, pos + 42);
+
+            int namePos = pos + CENTRAL_HEADER_SIZE;
+            int extraPos = namePos + nameLength;
+            int next = extraPos + extraLength + commentLength;
+
+            if (next > central.limit())
+                throw new IOException("Invalid central directory entry.");
+
+            String name = new String(central.array(), namePos, nameLength, StandardCharsets.UTF_8);
+
+            // values too large for the header are in the ZIP64 extra field, in order
+            int extraEnd = extraPos + extraLength;
+
+            for (int extra = extraPos; extra + 4 <= extraEnd; ) {
+
+                int id = getShort(central, extra);
+                int dataSize = getShort(central, extra + 2);
+                int field = extra + 4;
+                int fieldEnd = field + dataSize;
+
+                if (fieldEnd > extraEnd)
+                    throw new IOException("Invalid extra field: " + name);
+
+                if (id == 0x0001) {
+                    if (size == MAX_32) {
+                        size = getZip64Value(central, field, fieldEnd, name);
+                        field += 8;
+                    }
+                    if (compressedSize == MAX_32) {
+                        compressedSize = getZip64Value(central, field, fieldEnd, name);
+                        field += 8;
+                    }
+                    if (offset == MAX_32)
+                        offset = getZip64Value(central, field, fieldEnd, name);
+                    break;
+                }
+
+                extra = fieldEnd;
+            }
+
+            records.put(name, new ZipRecord(name, method, flags, dosTime, crc, compressedSize, size, offset));
+            pos = next;
+        }
+
+        return records;
+    }
+
+    private ByteBuffer read(long position, int length) throws IOException {
+
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+
+        while (buffer.hasRemaining()) {
+            int read = _channel.read(buffer, position + buffer.position());
+            if (read == -1)
+                throw new EOFException("Unexpected end of zip file: " + _file);
+        }
+
+        buffer.flip();
+        return buffer;
+    }
+
+    private static long getZip64Value(ByteBuffer buffer, int index, int end, String name)
+            throws IOException {
+
+        if (index + 8 > end)
+            throw new IOException("Invalid ZIP64 extra field: " + name);
+
+        return buffer.getLong(index);
+    }
+
+    private static int getShort(ByteBuffer buffer, int index) {
+        return buffer.getShort(index) & 0xFFFF;
+    }
+
+    private static long getInt(ByteBuffer buffer, int index) {
+        return buffer.getInt(index) & MAX_32;
+    }
+}
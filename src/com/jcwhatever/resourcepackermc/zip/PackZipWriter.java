@@ -0,0 +1,418 @@
+/*
+ * This file is part of ResourcePackerMC for Bukkit, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) JCThePants (www.jcwhatever.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.jcwhatever.resourcepackermc.zip;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TimeZone;
+
+/**
+ * Writes a zip archive from pre-compressed entry data.
+ *
+ * <p>Sizes and CRC's are known before each entry is written, so local headers
+ * are written with their final values and no data descriptors are used. Several
+ * central directory entries may refer to the same local entry. ZIP64 records are
+ * written when the archive is too large or has too many entries for the
+ * standard format.</p>
+ */
+public class PackZipWriter implements Closeable {
+
+    public static final int METHOD_STORED = 0;
+    public static final int METHOD_DEFLATED = 8;
+
+    private static final int LOCAL_HEADER = 0x04034b50;
+    private static final int CENTRAL_HEADER = 0x02014b50;
+    private static final int END_OF_CENTRAL = 0x06054b50;
+    private static final int ZIP64_END_OF_CENTRAL = 0x06064b50;
+    private static final int ZIP64_LOCATOR = 0x07064b50;
+
+    private static final int FLAG_UTF8 = 0x0800;
+    private static final int VERSION = 20;
+    private static final int VERSION_ZIP64 = 45;
+
+    private static final long MAX_32 = 0xFFFFFFFFL;
+    private static final int MAX_16 = 0xFFFF;
+
+    private final PositionOutputStream _out;
+    private final List<ZipRecord> _records = new ArrayList<>(100);
+    private final Set<String> _names = new HashSet<>(100);
+    private final byte[] _header = new byte[64];
+
+    private boolean _isFinished;
+
+    /**
+     * Constructor.
+     *
+     * @param out  The stream to write the archive to.
+     */
+    public PackZipWriter(OutputStream out) {
+        _out = new PositionOutputStream(new BufferedOutputStream(out, 64 * 1024));
+    }
+
+    /**
+     * Get the number of bytes written so far.
+     */
+    public long getPosition() {
+        return _out._position;
+    }
+
+    /**
+     * Get the records of the entries written so far.
+     */
+    public List<ZipRecord> getRecords() {
+        return _records;
+    }
+
+    /**
+     * Determine if an entry with the specified name has been written.
+     *
+     * @param name  The entry name.
+     */
+    public boolean contains(String name) {
+        return _names.contains(name);
+    }
+
+    /**
+     * Write an entry.
+     *
+     * @param name  The entry name.
+     * @param time  The entry modified time in milliseconds.
+     * @param data  The compressed entry data.
+     *
+     * @return  The record of the written entry.
+     *
+     * @throws IOException
+     */
+    public ZipRecord write(String name, long time, CompressedData data) throws IOException {
+        return writeRaw(name, toDosTime(time), data.getMethod(), data.getCrc(), data.getSize(),
+                data.getData(), 0, data.getLength());
+    }
+
+    /**
+     * Write an entry from already compressed bytes.
+     *
+     * @param name     The entry name.
+     * @param dosTime  The MS-DOS date and time of the entry.
+     * @param method   The compression method of the data.
+     * @param crc      The CRC-32 of the uncompressed data.
+     * @param size     The size of the uncompressed data.
+     * @param data     The buffer containing the compressed data.
+     * @param offset   The offset of the compressed data in the buffer.
+     * @param length   The length of the compressed data.
+     *
+     * @return  The record of the written entry.
+     *
+     * @throws IOException
+     */
+    public ZipRecord writeRaw(String name, int dosTime, int method, long crc, long size,
+                              byte[] data, int offset, int length) throws IOException {
+
+        ZipRecord record = writeLocalHeader(name, dosTime, method, crc, length, size);
+        _out.write(data, offset, length);
+
+        return record;
+    }
+
+    /**
+     * Write the local header of an entry whose compressed data will be
+     * written directly to the stream returned by {@link #getDataStream}.
+     *
+     * @param name            The entry name.
+     * @param dosTime         The MS-DOS date and time of the entry.
+     * @param method          The compression method of the data.
+     * @param crc             The CRC-32 of the uncompressed data.
+     * @param compressedSize  The exact number of compressed bytes that will be written.
+     * @param size            The size of the uncompressed data.
+     *
+     * @return  The record of the entry.
+     *
+     * @throws IOException
+     */
+    public ZipRecord writeLocalHeader(String name, int dosTime, int method, long crc,
+                                      long compressedSize, long size) throws IOException {
+
+        checkName(name);
+
+        if (compressedSize >= MAX_32 || size >= MAX_32)
+            throw new IOException("Entry is too large: " + name);
+
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        long offset = _out._position;
+
+        int pos = 0;
+        pos = putInt(_header, pos, LOCAL_HEADER);
+        pos = putShort(_header, pos, VERSION);
+        pos = putShort(_header, pos, FLAG_UTF8);
+        pos = putShort(_header, pos, method);
+        pos = putInt(_header, pos, dosTime);
+        pos = putInt(_header, pos, (int) crc);
+        pos = putInt(_header, pos, (int) compressedSize);
+        pos = putInt(_header, pos, (int) size);
+        pos = putShort(_header, pos, nameBytes.length);
+        pos = putShort(_header, pos, 0);
+
+        _out.write(_header, 0, pos);
+        _out.write(nameBytes);
+
+        ZipRecord record = new ZipRecord(name, method, dosTime, crc, compressedSize, size, offset);
+        _records.add(record);
+        _names.add(name);
+
+        return record;
+    }
+
+    /**
+     * Get the stream used to write entry data after calling {@link #writeLocalHeader}.
+     */
+    public OutputStream getDataStream() {
+        return _out;
+    }
+
+    /**
+     * Add a central directory entry that refers to the data of a
+     * previously written entry.
+     *
+     * @param name    The name of the new entry.
+     * @param target  The record of the entry whose data is used.
+     *
+     * @throws IOException
+     */
+    public void writeAlias(String name, ZipRecord target) throws IOException {
+        checkName(name);
+
+        _records.add(target.withName(name));
+        _names.add(name);
+    }
+
+    /**
+     * Write the central directory and end records.
+     *
+     * <p>Does not close the underlying stream.</p>
+     *
+     * @throws IOException
+     */
+    public void finish() throws IOException {
+
+        if (_isFinished)
+            return;
+
+        _isFinished = true;
+
+        long centralOffset = _out._position;
+
+        for (ZipRecord record : _records) {
+            writeCentralHeader(record);
+        }
+
+        long centralSize = _out._position - centralOffset;
+        int count = _records.size();
+
+        if (count >= MAX_16 || centralOffset >= MAX_32 || centralSize >= MAX_32) {
+
+            long zip64Offset = _out._position;
+
+            int pos = 0;
+            pos = putInt(_header, pos, ZIP64_END_OF_CENTRAL);
+            pos = putLong(_header, pos, 44);
+            pos = putShort(_header, pos, VERSION_ZIP64);
+            pos = putShort(_header, pos, VERSION_ZIP64);
+            pos = putInt(_header, pos, 0);
+            pos = putInt(_header, pos, 0);
+            pos = putLong(_header, pos, count);
+            pos = putLong(_header, pos, count);
+            pos = putLong(_header, pos, centralSize);
+            pos = putLong(_header, pos, centralOffset);
+            _out.write(_header, 0, pos);
+
+            pos = 0;
+            pos = putInt(_header, pos, ZIP64_LOCATOR);
+            pos = putInt(_header, pos, 0);
+            pos = putLong(_header, pos, zip64Offset);
+            pos = putInt(_header, pos, 1);
+            _out.write(_header, 0, pos);
+        }
+
+        int pos = 0;
+        pos = putInt(_header, pos, END_OF_CENTRAL);
+        pos = putShort(_header, pos, 0);
+        pos = putShort(_header, pos, 0);
+        pos = putShort(_header, pos, Math.min(count, MAX_16));
+        pos = putShort(_header, pos, Math.min(count, MAX_16));
+        pos = putInt(_header, pos, (int) Math.min(centralSize, MAX_32));
+        pos = putInt(_header, pos, (int) Math.min(centralOffset, MAX_32));
+        pos = putShort(_header, pos, 0);
+        _out.write(_header, 0, pos);
+
+        _out.flush();
+    }
+
+    /**
+     * Finish the archive and close the underlying stream.
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        }
+        finally {
+            _out.close();
+        }
+    }
+
+    private void writeCentralHeader(ZipRecord record) throws IOException {
+
+        byte[] nameBytes = record.getName().getBytes(StandardCharsets.UTF_8);
+        boolean isZip64 = record.getOffset() >= MAX_32;
+
+        int pos = 0;
+        pos = putInt(_header, pos, CENTRAL_HEADER);
+        pos = putShort(_header, pos, isZip64 ? VERSION_ZIP64 : VERSION);
+        pos = putShort(_header, pos, isZip64 ? VERSION_ZIP64 : VERSION);
+        pos = putShort(_header, pos, FLAG_UTF8);
+        pos = putShort(_header, pos, record.getMethod());
+        pos = putInt(_header, pos, record.getDosTime());
+        pos = putInt(_header, pos, (int) record.getCrc());
+        pos = putInt(_header, pos, (int) record.getCompressedSize());
+        pos = putInt(_header, pos, (int) record.getSize());
+        pos = putShort(_header, pos, nameBytes.length);
+        pos = putShort(_header, pos, isZip64 ? 12 : 0);
+        pos = putShort(_header, pos, 0);
+        pos = putShort(_header, pos, 0);
+        pos = putShort(_header, pos, 0);
+        pos = putInt(_header, pos, 0);
+        pos = putInt(_header, pos, (int) Math.min(record.getOffset(), MAX_32));
+
+        _out.write(_header, 0, pos);
+        _out.write(nameBytes);
+
+        if (isZip64) {
+            pos = 0;
+            pos = putShort(_header, pos, 0x0001);
+            pos = putShort(_header, pos, 8);
+            pos = putLong(_header, pos, record.getOffset());
+            _out.write(_header, 0, pos);
+        }
+    }
+
+    private void checkName(String name) throws IOException {
+
+        if (_isFinished)
+            throw new IOException("Zip archive is already finished.");
+
+        if (_names.contains(name))
+            throw new IOException("Duplicate zip entry: " + name);
+    }
+
+    /**
+     * Convert a time in milliseconds to an MS-DOS date and time using
+     * the local time zone.
+     *
+     * <p>Times before 1980 are converted to 1980-01-01 00:00.</p>
+     *
+     * @param time  The time in milliseconds.
+     */
+    public static int toDosTime(long time) {
+        return toDosTime(time, TimeZone.getDefault());
+    }
+
+    /**
+     * Convert a time in milliseconds to an MS-DOS date and time.
+     *
+     * <p>Times before 1980 are converted to 1980-01-01 00:00.</p>
+     *
+     * @param time  The time in milliseconds.
+     * @param zone  The time zone of the MS-DOS date and time.
+     */
+    public static int toDosTime(long time, TimeZone zone) {
+
+        Calendar calendar = Calendar.getInstance(zone);
+        calendar.setTimeInMillis(time);
+
+        int year = calendar.get(Calendar.YEAR);
+        if (year < 1980)
+            return (1 << 21) | (1 << 16);
+
+        return ((year - 1980) << 25) |
+                ((calendar.get(Calendar.MONTH) + 1) << 21) |
+                (calendar.get(Calendar.DAY_OF_MONTH) << 16) |
+                (calendar.get(Calendar.HOUR_OF_DAY) << 11) |
+                (calendar.get(Calendar.MINUTE) << 5) |
+                (calendar.get(Calendar.SECOND) >> 1);
+    }
+
+    private static int putShort(byte[] buffer, int pos, int value) {
+        buffer[pos] = (byte) value;
+        buffer[pos + 1] = (byte) (value >>> 8);
+        return pos + 2;
+    }
+
+    private static int putInt(byte[] buffer, int pos, int value) {
+        buffer[pos] = (byte) value;
+        buffer[pos + 1] = (byte) (value >>> 8);
+        buffer[pos + 2] = (byte) (value >>> 16);
+        buffer[pos + 3] = (byte) (value >>> 24);
+        return pos + 4;
+    }
+
+    private static int putLong(byte[] buffer, int pos, long value) {
+        pos = putInt(buffer, pos, (int) value);
+        return putInt(buffer, pos, (int) (value >>> 32));
+    }
+
+    /*
+     * Tracks the number of bytes written.
+     */
+    private static class PositionOutputStream extends FilterOutputStream {
+
+        long _position;
+
+        PositionOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            _position++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            _position += len;
+        }
+    }
+}
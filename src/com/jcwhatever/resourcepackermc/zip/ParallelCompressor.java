@@ -0,0 +1,191 @@
+/*
+ * This file is part of ResourcePackerMC for Bukkit, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) JCThePants (www.jcwhatever.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.jcwhatever.resourcepackermc.zip;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.annotation.Nullable;
+
+/**
+ * Compresses files on a thread pool and hands the results back in the
+ * order the files were added.
+ *
+ * <p>Results are passed to an {@link ICompressedHandler} on the thread that
+ * adds the files, so the handler can write to a {@link PackZipWriter} without
+ * synchronization and the archive is the same regardless of the thread count.
+ * The number of files and the number of bytes being compressed or waiting to be
+ * written are limited so that memory use does not grow with the size of the
+ * pack. Each task is counted as twice the bytes it reads, the data read plus
+ * at most as many bytes of compressed data.</p>
+ *
+ * @param <T>  The type of key used to identify each file.
+ */
+public class ParallelCompressor<T> implements Closeable {
+
+    private final ExecutorService _executor;
+    private final ICompressedHandler<T> _handler;
+    private final int _maxFiles;
+    private final long _maxBytes;
+    private final ArrayDeque<Pending<T>> _pending = new ArrayDeque<>(32);
+
+    private long _pendingBytes;
+
+    /**
+     * Constructor.
+     *
+     * @param threads   The number of threads to compress with.
+     * @param maxBytes  The maximum number of bytes of data read and compressed by tasks
+     *                  that are running or waiting to be handled. A larger task still
+     *                  runs, but not until all tasks before it are handled.
+     * @param handler   Receives the results in order.
+     */
+    public ParallelCompressor(int threads, long maxBytes, ICompressedHandler<T> handler) {
+        threads = Math.max(1, threads);
+
+        _executor = Executors.newFixedThreadPool(threads);
+        _handler = handler;
+        _maxFiles = threads * 4;
+        _maxBytes = maxBytes;
+    }
+
+    /**
+     * Add a task that produces compressed data.
+     *
+     * <p>The task reads and compresses a file or gets the data some other way,
+     * such as copying already compressed data. Blocks while the limits are
+     * reached, handling the oldest results as they finish.</p>
+     *
+     * @param key   The key passed to the handler with the result.
+     * @param task  The task to run or null to pass the key to the handler
+     *              without data, in order with the compressed files.
+     * @param size  The number of bytes the task reads.
+     *
+     * @throws IOException  If the handler throws or a task before it failed.
+     */
+    public void add(T key, @Nullable Callable<CompressedData> task, long size) throws IOException {
+
+        // the data read and the compressed data, which is never larger
+        size *= 2;
+
+        while (!_pending.isEmpty() &&
+                (_pending.size() >= _maxFiles || _pendingBytes + size > _maxBytes)) {
+            handleNext();
+        }
+
+        Future<CompressedData> future = task != null
+                ? _executor.submit(task)
+                : null;
+
+        _pending.add(new Pending<>(key, future, size));
+        _pendingBytes += size;
+    }
+
+    /**
+     * Wait for all added files to be compressed and handled.
+     *
+     * @throws IOException  If the handler throws or a file could not be read.
+     */
+    public void finish() throws IOException {
+        while (!_pending.isEmpty()) {
+            handleNext();
+        }
+    }
+
+    /**
+     * Stop compressing. Results that have not been handled are discarded.
+     */
+    @Override
+    public void close() {
+        _executor.shutdownNow();
+        _pending.clear();
+        _pendingBytes = 0;
+    }
+
+    private void handleNext() throws IOException {
+
+        Pending<T> pending = _pending.remove();
+        _pendingBytes -= pending.size;
+
+        CompressedData data = null;
+
+        if (pending.future != null) {
+            try {
+                data = pending.future.get();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while compressing.");
+            }
+            catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException)
+                    throw (IOException) cause;
+
+                throw new IOException("Failed to compress file.", cause);
+            }
+        }
+
+        _handler.onCompressed(pending.key, data);
+    }
+
+    private static class Pending<T> {
+
+        final T key;
+        final Future<CompressedData> future;
+        final long size;
+
+        Pending(T key, @Nullable Future<CompressedData> future, long size) {
+            this.key = key;
+            this.future = future;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Receives the results of a {@link ParallelCompressor} in the order
+     * the files were added.
+     *
+     * @param <T>  The type of key used to identify each file.
+     */
+    public interface ICompressedHandler<T> {
+
+        /**
+         * Invoked when the next file has been compressed.
+         *
+         * @param key   The key the file was added with.
+         * @param data  The compressed data or null if no file was added with the key.
+         *
+         * @throws IOException
+         */
+        void onCompressed(T key, @Nullable CompressedData data) throws IOException;
+    }
+}
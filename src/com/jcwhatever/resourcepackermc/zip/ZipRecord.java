@@ -0,0 +1,170 @@
+/*
+ * This file is part of ResourcePackerMC for Bukkit, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) JCThePants (www.jcwhatever.com)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.jcwhatever.resourcepackermc.zip;
+
+/**
+ * The central directory information of a zip entry, either written by a
+ * {@link PackZipWriter} or read from an existing archive by a {@link PackZipReader}.
+ */
+public class ZipRecord {
+
+    private final String _name;
+    private final int _method;
+    private final int _flags;
+    private final int _dosTime;
+    private final long _crc;
+    private final long _compressedSize;
+    private final long _size;
+    private final long _offset;
+
+    /**
+     * Constructor.
+     *
+     * @param name            The entry name.
+     * @param method          The compression method.
+     * @param dosTime         The MS-DOS date and time of the entry.
+     * @param crc             The CRC-32 of the uncompressed data.
+     * @param compressedSize  The size of the compressed data.
+     * @param size            The size of the uncompressed data.
+     * @param offset          The offset of the local file header in the archive.
+     */
+    public ZipRecord(String name, int method, int dosTime, long crc,
+                     long compressedSize, long size, long offset) {
+        this(name, method, 0, dosTime, crc, compressedSize, size, offset);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param name            The entry name.
+     * @param method          The compression method.
+     * @param flags           The general purpose bit flags read from an archive.
+     * @param dosTime         The MS-DOS date and time of the entry.
+     * @param crc             The CRC-32 of the uncompressed data.
+     * @param compressedSize  The size of the compressed data.
+     * @param size            The size of the uncompressed data.
+     * @param offset          The offset of the local file header in the archive.
+     */
+    public ZipRecord(String name, int method, int flags, int dosTime, long crc,
+                     long compressedSize, long size, long offset) {
+        _name = name;
+        _method = method;
+        _flags = flags;
+        _dosTime = dosTime;
+        _crc = crc;
+        _compressedSize = compressedSize;
+        _size = size;
+        _offset = offset;
+    }
+
+    /**
+     * Get the entry name.
+     */
+    public String getName() {
+        return _name;
+    }
+
+    /**
+     * Get the compression method.
+     *
+     * @see PackZipWriter#METHOD_STORED
+     * @see PackZipWriter#METHOD_DEFLATED
+     */
+    public int getMethod() {
+        return _method;
+    }
+
+    /**
+     * Get the general purpose bit flags read from an archive.
+     *
+     * <p>Zero for entries written by a {@link PackZipWriter}.</p>
+     */
+    public int getFlags() {
+        return _flags;
+    }
+
+    /**
+     * Determine if the entry data is encrypted.
+     */
+    public boolean isEncrypted() {
+        return (_flags & 0x0001) != 0;
+    }
+
+    /**
+     * Determine if the entry data can be copied into an archive written
+     * by a {@link PackZipWriter}.
+     *
+     * <p>The data must be stored or deflated and must not be encrypted.</p>
+     */
+    public boolean isCopyable() {
+        return !isEncrypted() &&
+                (_method == PackZipWriter.METHOD_STORED || _method == PackZipWriter.METHOD_DEFLATED);
+    }
+
+    /**
+     * Get the MS-DOS date and time of the entry.
+     */
+    public int getDosTime() {
+        return _dosTime;
+    }
+
+    /**
+     * Get the CRC-32 of the uncompressed data.
+     */
+    public long getCrc() {
+        return _crc;
+    }
+
+    /**
+     * Get the size of the compressed data.
+     */
+    public long getCompressedSize() {
+        return _compressedSize;
+    }
+
+    /**
+     * Get the size of the uncompressed data.
+     */
+    public long getSize() {
+        return _size;
+    }
+
+    /**
+     * Get the offset of the local file header in the archive.
+     */
+    public long getOffset() {
+        return _offset;
+    }
+
+    /**
+     * Get a copy of the record with a different name that refers to
+     * the same local entry.
+     *
+     * @param name  The name of the copy.
+     */
+    public ZipRecord withName(String name) {
+        return new ZipRecord(name, _method, _flags, _dosTime, _crc, _compressedSize, _size, _offset);
+    }
+}